@@ -0,0 +1,65 @@
+package com.github.harboat.rooms;
+
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+final class InMemoryRooms {
+
+    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+    private final Map<String, Room> roomsByPlayer = new ConcurrentHashMap<>();
+
+    RoomRepository repository() {
+        return (RoomRepository) Proxy.newProxyInstance(
+                RoomRepository.class.getClassLoader(),
+                new Class<?>[]{RoomRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> Optional.ofNullable(rooms.get((String) args[0]));
+                    case "save", "insert" -> store((Room) args[0]);
+                    case "findFirstByPlayersPlayerIdAndStartedFalse" -> Optional.ofNullable(roomsByPlayer.get((String) args[0]))
+                            .filter(room -> room.isPlayerInTheRoom((String) args[0]) && !room.hasStarted());
+                    case "count" -> (long) rooms.size();
+                    case "deleteAll" -> {
+                        clear();
+                        yield null;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryRoomRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                }
+        );
+    }
+
+    static MongoOperations noOpMongoOperations() {
+        return (MongoOperations) Proxy.newProxyInstance(
+                MongoOperations.class.getClassLoader(),
+                new Class<?>[]{MongoOperations.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "NoOpMongoOperations";
+                    default -> null;
+                }
+        );
+    }
+
+    static MessagePublisher noOpPublisher() {
+        return (payload, exchange, routingKey) -> {
+        };
+    }
+
+    void clear() {
+        rooms.clear();
+        roomsByPlayer.clear();
+    }
+
+    private Room store(Room room) {
+        rooms.put(room.getId(), room);
+        room.playerIds().forEach(playerId -> roomsByPlayer.put(playerId, room));
+        return room;
+    }
+}
@@ -0,0 +1,270 @@
+package com.github.harboat.rooms;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.github.harboat.clients.rooms.*;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.RecordComponent;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class LoadHarness {
+
+    private static final int COMMANDS_PER_PAIR = 7;
+
+    private final InMemoryRooms rooms = new InMemoryRooms();
+    private final Map<String, String> roomsByOwner = new ConcurrentHashMap<>();
+    private final AtomicLong published = new AtomicLong();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RoomCache cache;
+    private final RoomLifecycle lifecycle;
+    private final LobbyReadModel readModel;
+    private final RoomsQueueConsumer consumer;
+
+    private LoadHarness() {
+        MessagePublisher publisher = (payload, exchange, routingKey) -> {
+            published.incrementAndGet();
+            if (payload instanceof RoomCreated roomCreated) roomsByOwner.put(roomCreated.ownerId(), roomCreated.roomId());
+        };
+        cache = new RoomCache(rooms.repository(), InMemoryRooms.noOpMongoOperations(), false, 1_000_000, Duration.ofMinutes(10), 500);
+        OpenRooms openRooms = new OpenRooms();
+        NotificationProducer notificationProducer = new NotificationProducer(publisher);
+        lifecycle = new RoomLifecycle(InMemoryRooms.noOpMongoOperations(), cache, openRooms, notificationProducer,
+                Duration.ZERO, Duration.ZERO, 1, 512);
+        CachedRoomStore store = new CachedRoomStore(cache, true);
+        readModel = new LobbyReadModel(store, Duration.ZERO, Duration.ZERO, Duration.ofMinutes(5), 1);
+        RoomService service = new RoomService(
+                store,
+                new RoomOutbox(false, objectMapper),
+                new RoomEventDispatcher(new CoreQueueProducer(publisher), new ConfigQueueProducer(publisher)),
+                openRooms,
+                notificationProducer,
+                lifecycle,
+                readModel
+        );
+        RoomLanes lanes = new RoomLanes(false, 0, 1, meterRegistry);
+        RoomCommandHandler handler = new RoomCommandHandler(
+                service,
+                notificationProducer,
+                meterRegistry,
+                new MessageDeduplicator(100_000, Duration.ofMinutes(10), 1_000_000),
+                rooms.repository(),
+                new UnknownRooms(Duration.ofSeconds(30), 100_000),
+                new ReadinessCoalescer(Duration.ZERO, false, meterRegistry),
+                lanes
+        );
+        consumer = new RoomsQueueConsumer(
+                handler,
+                lanes,
+                new PlayerRateLimiter(false, 1, 1, PlayerRateLimiter.Policy.DROP)
+        );
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = options(args);
+        int pairs = Integer.parseInt(options.getOrDefault("pairs", "10000"));
+        int workers = Integer.parseInt(options.getOrDefault("workers", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int warmupPairs = Integer.parseInt(options.getOrDefault("warmup", "2000"));
+        Duration soak = Duration.parse(options.getOrDefault("soak", "PT0S"));
+        String report = options.get("report");
+
+        LoadHarness harness = new LoadHarness();
+        harness.round("warmup", warmupPairs, workers);
+        List<Map<String, Object>> rounds = new ArrayList<>();
+        long deadline = System.nanoTime() + soak.toNanos();
+        int round = 0;
+        do {
+            Map<String, Object> result = harness.round("round-" + round++, pairs, workers);
+            rounds.add(result);
+            print(result);
+        } while (System.nanoTime() < deadline);
+
+        if (report != null) {
+            new ObjectMapper()
+                    .enable(SerializationFeature.INDENT_OUTPUT)
+                    .writeValue(new File(report), Map.of("pairs", pairs, "workers", workers, "rounds", rounds));
+        }
+    }
+
+    private Map<String, Object> round(String name, int pairs, int workers) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTime();
+        long failuresBefore = failures();
+        long start = System.nanoTime();
+        List<Future<WorkerResult>> futures = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            int from = pairs * w / workers;
+            int to = pairs * (w + 1) / workers;
+            futures.add(executor.submit(() -> runPairs(name, from, to)));
+        }
+        long[] latencies = new long[0];
+        long allocated = 0;
+        int completed = 0;
+        for (Future<WorkerResult> future : futures) {
+            WorkerResult result = future.get();
+            latencies = concat(latencies, result.latencies());
+            allocated += result.allocatedBytes();
+            completed += result.completedGames();
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        Arrays.sort(latencies);
+        double seconds = elapsed / 1e9;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("round", name);
+        result.put("commands", latencies.length);
+        result.put("completedGames", completed);
+        result.put("rejectedCommands", failures() - failuresBefore);
+        result.put("elapsedMillis", elapsed / 1_000_000);
+        result.put("commandsPerSecond", Math.round(latencies.length / seconds));
+        result.put("gamesPerSecond", Math.round(completed / seconds));
+        result.put("p50Micros", percentile(latencies, 0.50));
+        result.put("p90Micros", percentile(latencies, 0.90));
+        result.put("p99Micros", percentile(latencies, 0.99));
+        result.put("p999Micros", percentile(latencies, 0.999));
+        result.put("maxMicros", latencies.length == 0 ? 0 : latencies[latencies.length - 1] / 1_000);
+        result.put("allocatedBytesPerCommand", latencies.length == 0 ? 0 : allocated / latencies.length);
+        result.put("allocationMegabytesPerSecond", Math.round(allocated / seconds / (1024 * 1024)));
+        result.put("gcCount", gcCount() - gcCountBefore);
+        result.put("gcMillis", gcTime() - gcTimeBefore);
+        result.put("published", published.getAndSet(0));
+
+        lifecycle.expire();
+        readModel.evictIdle();
+        rooms.clear();
+        roomsByOwner.clear();
+        return result;
+    }
+
+    private WorkerResult runPairs(String round, int from, int to) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long[] latencies = new long[(to - from) * COMMANDS_PER_PAIR];
+        int recorded = 0;
+        int completed = 0;
+        long tag = 0;
+        for (int i = from; i < to; i++) {
+            String owner = round + "-owner-" + i;
+            String enemy = round + "-enemy-" + i;
+
+            long start = System.nanoTime();
+            consumer.consume(new RoomCreate(owner), null, false, null, tag++);
+            latencies[recorded++] = System.nanoTime() - start;
+            String roomId = roomsByOwner.get(owner);
+            if (roomId == null) continue;
+
+            RoomPlayerJoin join = new RoomPlayerJoin(roomId, enemy);
+            MarkFleetSet ownerFleet = command(MarkFleetSet.class, roomId, owner);
+            MarkFleetSet enemyFleet = command(MarkFleetSet.class, roomId, enemy);
+            ChangePlayerReadiness ownerReady = new ChangePlayerReadiness(roomId, owner);
+            ChangePlayerReadiness enemyReady = new ChangePlayerReadiness(roomId, enemy);
+            MarkStart markStart = new MarkStart(roomId, owner);
+
+            start = System.nanoTime();
+            consumer.consume(join, null, false, null, tag++);
+            latencies[recorded++] = System.nanoTime() - start;
+            start = System.nanoTime();
+            consumer.consume(ownerFleet, null, false, null, tag++);
+            latencies[recorded++] = System.nanoTime() - start;
+            start = System.nanoTime();
+            consumer.consume(enemyFleet, null, false, null, tag++);
+            latencies[recorded++] = System.nanoTime() - start;
+            start = System.nanoTime();
+            consumer.consume(ownerReady, null, false, null, tag++);
+            latencies[recorded++] = System.nanoTime() - start;
+            start = System.nanoTime();
+            consumer.consume(enemyReady, null, false, null, tag++);
+            latencies[recorded++] = System.nanoTime() - start;
+            start = System.nanoTime();
+            consumer.consume(markStart, null, false, null, tag++);
+            latencies[recorded++] = System.nanoTime() - start;
+
+            if (cache.findById(roomId).map(Room::hasStarted).orElse(false)) completed++;
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        return new WorkerResult(Arrays.copyOf(latencies, recorded), allocated, completed);
+    }
+
+    private static <T> T command(Class<T> type, String roomId, String playerId) {
+        RecordComponent[] components = type.getRecordComponents();
+        Class<?>[] types = new Class<?>[components.length];
+        Object[] values = new Object[components.length];
+        for (int i = 0; i < components.length; i++) {
+            types[i] = components[i].getType();
+            values[i] = "roomId".equals(components[i].getName()) ? roomId : playerId;
+        }
+        try {
+            return type.getDeclaredConstructor(types).newInstance(values);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Couldn't create " + type.getSimpleName(), e);
+        }
+    }
+
+    private long failures() {
+        return meterRegistry.find("rooms.commands").timers().stream()
+                .filter(timer -> !"ok".equals(timer.getId().getTag("outcome")))
+                .mapToLong(Timer::count)
+                .sum();
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000;
+    }
+
+    private static long[] concat(long[] first, long[] second) {
+        long[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+                .sum();
+    }
+
+    private static long gcTime() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+                .sum();
+    }
+
+    private static void print(Map<String, Object> result) {
+        StringBuilder line = new StringBuilder();
+        result.forEach((key, value) -> line.append(key).append('=').append(value).append(' '));
+        System.out.println(line.toString().trim());
+    }
+
+    private static Map<String, String> options(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator < 0) throw new IllegalArgumentException("Expected key=value but got " + arg);
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    private record WorkerResult(long[] latencies, long allocatedBytes, int completedGames) {
+    }
+}
@@ -0,0 +1,77 @@
+package com.github.harboat.rooms;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.harboat.clients.notification.EventType;
+import com.github.harboat.clients.notification.NotificationRequest;
+import com.github.harboat.clients.rooms.ChangePlayerReadiness;
+import com.github.harboat.clients.rooms.MarkStart;
+import com.github.harboat.clients.rooms.RoomPlayerJoin;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageSerializationBenchmark {
+
+    private ObjectMapper objectMapper;
+    private RoomPlayerJoin roomPlayerJoin;
+    private ChangePlayerReadiness changePlayerReadiness;
+    private MarkStart markStart;
+    private NotificationRequest<ChangePlayerReadiness> notification;
+    private byte[] roomPlayerJoinJson;
+    private byte[] changePlayerReadinessJson;
+    private byte[] markStartJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = new ObjectMapper();
+        roomPlayerJoin = new RoomPlayerJoin("626d4d8b5c3e4a1f2b7c9d10", "benchmarkPlayer");
+        changePlayerReadiness = new ChangePlayerReadiness("626d4d8b5c3e4a1f2b7c9d10", "benchmarkPlayer");
+        markStart = new MarkStart("626d4d8b5c3e4a1f2b7c9d10", "benchmarkPlayer");
+        notification = new NotificationRequest<>("benchmarkPlayer", EventType.PLAYER_READY, changePlayerReadiness);
+        roomPlayerJoinJson = objectMapper.writeValueAsBytes(roomPlayerJoin);
+        changePlayerReadinessJson = objectMapper.writeValueAsBytes(changePlayerReadiness);
+        markStartJson = objectMapper.writeValueAsBytes(markStart);
+    }
+
+    @Benchmark
+    public byte[] writeRoomPlayerJoin() throws IOException {
+        return objectMapper.writeValueAsBytes(roomPlayerJoin);
+    }
+
+    @Benchmark
+    public RoomPlayerJoin readRoomPlayerJoin() throws IOException {
+        return objectMapper.readValue(roomPlayerJoinJson, RoomPlayerJoin.class);
+    }
+
+    @Benchmark
+    public byte[] writeChangePlayerReadiness() throws IOException {
+        return objectMapper.writeValueAsBytes(changePlayerReadiness);
+    }
+
+    @Benchmark
+    public ChangePlayerReadiness readChangePlayerReadiness() throws IOException {
+        return objectMapper.readValue(changePlayerReadinessJson, ChangePlayerReadiness.class);
+    }
+
+    @Benchmark
+    public byte[] writeMarkStart() throws IOException {
+        return objectMapper.writeValueAsBytes(markStart);
+    }
+
+    @Benchmark
+    public MarkStart readMarkStart() throws IOException {
+        return objectMapper.readValue(markStartJson, MarkStart.class);
+    }
+
+    @Benchmark
+    public byte[] writeNotificationRequest() throws IOException {
+        return objectMapper.writeValueAsBytes(notification);
+    }
+}
@@ -0,0 +1,63 @@
+package com.github.harboat.rooms;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoomPredicatesBenchmark {
+
+    private Room room;
+    private String ownerId;
+    private String strangerId;
+
+    @Setup
+    public void setUp() {
+        ownerId = "benchmarkOwner";
+        strangerId = "benchmarkStranger";
+        room = Room.builder()
+                .id("benchmarkRoom")
+                .ownerId(ownerId)
+                .players(List.of(new Player(ownerId, true, true), new Player("benchmarkEnemy", false, true)))
+                .started(false)
+                .build();
+    }
+
+    @Benchmark
+    public boolean areAllPlayersReady() {
+        return room.areAllPlayersReady();
+    }
+
+    @Benchmark
+    public boolean areAllFleetsSet() {
+        return room.areAllFleetsSet();
+    }
+
+    @Benchmark
+    public void isPlayerInTheRoom(Blackhole blackhole) {
+        blackhole.consume(room.isPlayerInTheRoom(ownerId));
+        blackhole.consume(room.isPlayerInTheRoom(strangerId));
+    }
+
+    @Benchmark
+    public boolean changePlayerReadiness() {
+        return room.changePlayerReadiness(ownerId);
+    }
+
+    @Benchmark
+    public List<String> playerIds() {
+        return room.playerIds();
+    }
+
+    @Benchmark
+    public Room snapshot() {
+        return room.snapshot();
+    }
+}
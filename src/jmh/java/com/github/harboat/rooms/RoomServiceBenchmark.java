@@ -0,0 +1,127 @@
+package com.github.harboat.rooms;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.harboat.clients.rooms.ChangePlayerReadiness;
+import com.github.harboat.clients.rooms.MarkStart;
+import com.github.harboat.clients.rooms.RoomPlayerJoin;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoomServiceBenchmark {
+
+    private static final String OWNER = "benchmarkOwner";
+    private static final String ENEMY = "benchmarkEnemy";
+    private static final String READY_ROOM = "readyRoom";
+
+    @State(Scope.Thread)
+    public static class Rooms {
+        private InMemoryRooms rooms;
+        private RoomCache cache;
+        private RoomLifecycle lifecycle;
+        private LobbyReadModel readModel;
+        private RoomService service;
+        private long sequence;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            rooms = new InMemoryRooms();
+            MessagePublisher publisher = InMemoryRooms.noOpPublisher();
+            cache = new RoomCache(rooms.repository(), InMemoryRooms.noOpMongoOperations(), false, 100_000, Duration.ofMinutes(10), 500);
+            OpenRooms openRooms = new OpenRooms();
+            NotificationProducer notificationProducer = new NotificationProducer(publisher);
+            lifecycle = new RoomLifecycle(InMemoryRooms.noOpMongoOperations(), cache, openRooms, notificationProducer,
+                    Duration.ZERO, Duration.ZERO, 1, 512);
+            CachedRoomStore store = new CachedRoomStore(cache, true);
+            readModel = new LobbyReadModel(store, Duration.ZERO, Duration.ZERO, Duration.ofMinutes(5), 1);
+            service = new RoomService(
+                    store,
+                    new RoomOutbox(false, new ObjectMapper()),
+                    new RoomEventDispatcher(new CoreQueueProducer(publisher), new ConfigQueueProducer(publisher)),
+                    openRooms,
+                    notificationProducer,
+                    lifecycle,
+                    readModel
+            );
+            seed();
+        }
+
+        @TearDown(Level.Iteration)
+        public void reset() {
+            lifecycle.expire();
+            readModel.evictIdle();
+            rooms.clear();
+            seed();
+        }
+
+        private String nextId(String prefix) {
+            return prefix + "-" + sequence++;
+        }
+
+        private void seed() {
+            cache.create(room(READY_ROOM, new Player(OWNER, false, true), new Player(ENEMY, true, true)));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Lobby {
+        private RoomPlayerJoin roomPlayerJoin;
+
+        @Setup(Level.Invocation)
+        public void setUp(Rooms rooms) {
+            String roomId = rooms.nextId("lobby");
+            rooms.cache.create(room(roomId, new Player(OWNER, false, false)));
+            roomPlayerJoin = new RoomPlayerJoin(roomId, ENEMY);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ReadyGame {
+        private MarkStart markStart;
+
+        @Setup(Level.Invocation)
+        public void setUp(Rooms rooms) {
+            String roomId = rooms.nextId("game");
+            rooms.cache.create(room(roomId, new Player(OWNER, true, true), new Player(ENEMY, true, true)));
+            markStart = new MarkStart(roomId, OWNER);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Readiness {
+        private final ChangePlayerReadiness changeReadiness = new ChangePlayerReadiness(READY_ROOM, OWNER);
+    }
+
+    @Benchmark
+    public void joinPlayer(Rooms rooms, Lobby lobby) {
+        rooms.service.joinPlayer(lobby.roomPlayerJoin);
+    }
+
+    @Benchmark
+    public void changeReady(Rooms rooms, Readiness readiness) {
+        rooms.service.changeReady(readiness.changeReadiness);
+    }
+
+    @Benchmark
+    public void markStart(Rooms rooms, ReadyGame game) {
+        rooms.service.markStart(game.markStart);
+    }
+
+    private static Room room(String id, Player... players) {
+        return Room.builder()
+                .id(id)
+                .ownerId(OWNER)
+                .players(List.of(players))
+                .started(false)
+                .outbox(new ArrayList<>())
+                .build();
+    }
+}
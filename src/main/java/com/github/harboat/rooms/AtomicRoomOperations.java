@@ -0,0 +1,17 @@
+package com.github.harboat.rooms;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface AtomicRoomOperations {
+
+    Optional<Room> addPlayer(String roomId, String playerId, List<OutboxEvent> events);
+
+    Optional<Room> markFleetSet(String roomId, String playerId);
+
+    Optional<Room> unmarkFleetSets(String roomId, String playerId);
+
+    Optional<Room> toggleReadiness(String roomId, String playerId);
+
+    Optional<Room> markStarted(String roomId, String playerId, List<OutboxEvent> events);
+}
@@ -0,0 +1,44 @@
+package com.github.harboat.rooms;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.MongoOperations;
+
+import java.util.List;
+import java.util.Optional;
+
+@RequiredArgsConstructor
+class AtomicRoomOperationsImpl implements AtomicRoomOperations {
+
+    private final MongoOperations mongoOperations;
+
+    @Override
+    public Optional<Room> addPlayer(String roomId, String playerId, List<OutboxEvent> events) {
+        return modify(RoomMutations.addPlayer(roomId, playerId, events, MessageContext.currentMessageId()));
+    }
+
+    @Override
+    public Optional<Room> markFleetSet(String roomId, String playerId) {
+        return modify(RoomMutations.markFleetSet(roomId, playerId, MessageContext.currentMessageId()));
+    }
+
+    @Override
+    public Optional<Room> unmarkFleetSets(String roomId, String playerId) {
+        return modify(RoomMutations.unmarkFleetSets(roomId, playerId, MessageContext.currentMessageId()));
+    }
+
+    @Override
+    public Optional<Room> toggleReadiness(String roomId, String playerId) {
+        return modify(RoomMutations.toggleReadiness(roomId, playerId, MessageContext.currentMessageId()));
+    }
+
+    @Override
+    public Optional<Room> markStarted(String roomId, String playerId, List<OutboxEvent> events) {
+        return modify(RoomMutations.markStarted(roomId, playerId, events, MessageContext.currentMessageId()));
+    }
+
+    private Optional<Room> modify(RoomMutations.Mutation mutation) {
+        return Optional.ofNullable(
+                mongoOperations.findAndModify(mutation.query(), mutation.update(), RoomMutations.RETURN_NEW, Room.class)
+        );
+    }
+}
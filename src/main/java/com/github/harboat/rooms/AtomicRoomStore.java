@@ -0,0 +1,74 @@
+package com.github.harboat.rooms;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+@Component
+@ConditionalOnProperty(name = "rooms.store", havingValue = "atomic", matchIfMissing = true)
+@RequiredArgsConstructor
+public class AtomicRoomStore implements RoomStore {
+
+    private final RoomRepository repository;
+
+    @Override
+    public Room create(Room room) {
+        room.markProcessed(MessageContext.currentMessageId());
+        return repository.insert(room);
+    }
+
+    @Override
+    public Optional<Room> findById(String roomId) {
+        return repository.findById(roomId);
+    }
+
+    @Override
+    public Optional<Room> findActiveByPlayer(String playerId) {
+        return repository.findFirstByPlayersPlayerIdAndStartedFalse(playerId);
+    }
+
+    @Override
+    public Room join(String roomId, String playerId, List<OutboxEvent> events) {
+        return repository.addPlayer(roomId, playerId, events)
+                .orElseThrow(() -> rejection(roomId, playerId, RoomError.ROOM_NOT_FOUND, RoomRules::requireCanJoin));
+    }
+
+    @Override
+    public Room markFleetSet(String roomId, String playerId) {
+        return repository.markFleetSet(roomId, playerId)
+                .orElseThrow(() -> rejection(roomId, playerId, RoomRules::requirePlayer));
+    }
+
+    @Override
+    public Room unmarkFleetSets(String roomId, String playerId) {
+        return repository.unmarkFleetSets(roomId, playerId)
+                .orElseThrow(() -> rejection(roomId, playerId, RoomRules::requirePlayer));
+    }
+
+    @Override
+    public Room changeReadiness(String roomId, String playerId) {
+        return repository.toggleReadiness(roomId, playerId)
+                .orElseThrow(() -> rejection(roomId, playerId, RoomRules::requireCanChangeReadiness));
+    }
+
+    @Override
+    public Room start(String roomId, String playerId, List<OutboxEvent> events) {
+        return repository.markStarted(roomId, playerId, events)
+                .orElseThrow(() -> rejection(roomId, playerId, RoomRules::requireCanStart));
+    }
+
+    private RuntimeException rejection(String roomId, String playerId, BiConsumer<Room, String> rules) {
+        return rejection(roomId, playerId, RoomError.GAME_NOT_FOUND, rules);
+    }
+
+    private RuntimeException rejection(String roomId, String playerId, RoomError notFound, BiConsumer<Room, String> rules) {
+        Optional<Room> room = repository.findById(roomId);
+        if (room.isEmpty()) return notFound.reject();
+        rules.accept(room.get(), playerId);
+        return RoomError.ROOM_CHANGED.reject();
+    }
+}
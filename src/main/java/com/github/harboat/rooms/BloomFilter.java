@@ -0,0 +1,49 @@
+package com.github.harboat.rooms;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+
+final class BloomFilter {
+
+    private final BitSet bits;
+    private final int size;
+    private final int hashes;
+
+    BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        int n = Math.max(1, expectedInsertions);
+        this.size = (int) Math.max(64, Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2))));
+        this.hashes = Math.max(1, (int) Math.round((double) size / n * Math.log(2)));
+        this.bits = new BitSet(size);
+    }
+
+    void put(String value) {
+        long hash = hash(value);
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            bits.set(Math.floorMod(first + i * second, size));
+        }
+    }
+
+    boolean mightContain(String value) {
+        long hash = hash(value);
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            if (!bits.get(Math.floorMod(first + i * second, size))) return false;
+        }
+        return true;
+    }
+
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.harboat.rooms;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Component
+@ConditionalOnProperty(name = "rooms.store", havingValue = "cached")
+public class CachedRoomStore implements RoomStore {
+
+    private final RoomCache cache;
+
+    public CachedRoomStore(RoomCache cache, @Value("${rooms.partitions.enabled}") boolean partitioned) {
+        if (!partitioned)
+            throw new IllegalStateException("rooms.store=cached keeps rooms in memory and needs rooms.partitions.enabled=true so each room has a single owner");
+        this.cache = cache;
+    }
+
+    @Override
+    public Room create(Room room) {
+        room.markProcessed(MessageContext.currentMessageId());
+        return cache.create(room);
+    }
+
+    @Override
+    public Optional<Room> findById(String roomId) {
+        return cache.findById(roomId);
+    }
+
+    @Override
+    public Optional<Room> findActiveByPlayer(String playerId) {
+        return cache.findActiveByPlayer(playerId);
+    }
+
+    @Override
+    public Room join(String roomId, String playerId, List<OutboxEvent> events) {
+        Room room = cache.findById(roomId).orElseThrow(RoomError.ROOM_NOT_FOUND::reject);
+        RoomRules.requireCanJoin(room, playerId);
+        room.addPlayer(playerId);
+        room.touch(Instant.now());
+        room.markProcessed(MessageContext.currentMessageId());
+        cache.save(room, events);
+        return room;
+    }
+
+    @Override
+    public Room markFleetSet(String roomId, String playerId) {
+        Room room = getRoom(roomId);
+        RoomRules.requirePlayer(room, playerId);
+        room.markPlayerFleetSet(playerId);
+        room.touch(Instant.now());
+        room.markProcessed(MessageContext.currentMessageId());
+        cache.save(room);
+        return room;
+    }
+
+    @Override
+    public Room unmarkFleetSets(String roomId, String playerId) {
+        Room room = getRoom(roomId);
+        RoomRules.requirePlayer(room, playerId);
+        room.unmarkFleetSets();
+        room.touch(Instant.now());
+        room.markProcessed(MessageContext.currentMessageId());
+        cache.save(room);
+        return room;
+    }
+
+    @Override
+    public Room changeReadiness(String roomId, String playerId) {
+        Room room = getRoom(roomId);
+        RoomRules.requireCanChangeReadiness(room, playerId);
+        room.changePlayerReadiness(playerId);
+        room.touch(Instant.now());
+        room.markProcessed(MessageContext.currentMessageId());
+        cache.save(room);
+        return room;
+    }
+
+    @Override
+    public Room start(String roomId, String playerId, List<OutboxEvent> events) {
+        Room room = getRoom(roomId);
+        RoomRules.requireCanStart(room, playerId);
+        room.start(Instant.now());
+        room.markProcessed(MessageContext.currentMessageId());
+        cache.save(room, events);
+        cache.flush(roomId);
+        return room;
+    }
+
+    private Room getRoom(String roomId) {
+        return cache.findById(roomId).orElseThrow(RoomError.GAME_NOT_FOUND::reject);
+    }
+}
@@ -3,16 +3,17 @@ package com.github.harboat.rooms;
 import com.github.harboat.clients.configuration.ConfigurationCreate;
 import com.github.harboat.clients.configuration.ConfigurationPlayerJoin;
 import com.github.harboat.clients.configuration.CreateGame;
-import com.github.harboat.rabbitmq.RabbitMQMessageProducer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+
 @Component
 @RequiredArgsConstructor
 public class ConfigQueueProducer {
 
-    private final RabbitMQMessageProducer producer;
+    private final MessagePublisher producer;
 
     @Value("${rabbitmq.exchanges.config}")
     private String internalExchange;
@@ -20,15 +21,15 @@ public class ConfigQueueProducer {
     @Value("${rabbitmq.routing-keys.config}")
     private String configRoutingKey;
 
-    public void sendCreate(ConfigurationCreate configurationCreate) {
-        producer.publish(configurationCreate, internalExchange, configRoutingKey);
+    public CompletableFuture<Void> sendCreate(ConfigurationCreate configurationCreate) {
+        return producer.publishConfirmed(configurationCreate, internalExchange, configRoutingKey);
     }
 
-    public void sendCreateGame(CreateGame createGame) {
-        producer.publish(createGame, internalExchange, configRoutingKey);
+    public CompletableFuture<Void> sendCreateGame(CreateGame createGame) {
+        return producer.publishConfirmed(createGame, internalExchange, configRoutingKey);
     }
 
-    public void sendPlayerJoin(ConfigurationPlayerJoin configurationPlayerJoin) {
-        producer.publish(configurationPlayerJoin, internalExchange, configRoutingKey);
+    public CompletableFuture<Void> sendPlayerJoin(ConfigurationPlayerJoin configurationPlayerJoin) {
+        return producer.publishConfirmed(configurationPlayerJoin, internalExchange, configRoutingKey);
     }
 }
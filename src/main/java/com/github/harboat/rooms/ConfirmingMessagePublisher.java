@@ -0,0 +1,129 @@
+package com.github.harboat.rooms;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+public class ConfirmingMessagePublisher implements MessagePublisher {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final MeterRegistry meterRegistry;
+    private final WireFormat wireFormat;
+    private final Semaphore window;
+    private final int maxOutstanding;
+    private final ThreadPoolExecutor executor;
+    private final Timer confirmLatency;
+    private final Counter nacked;
+    private final Counter failed;
+
+    public ConfirmingMessagePublisher(
+            RabbitTemplate rabbitTemplate,
+            MeterRegistry meterRegistry,
+            WireFormat wireFormat,
+            int queueCapacity,
+            int maxOutstanding
+    ) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.meterRegistry = meterRegistry;
+        this.wireFormat = wireFormat;
+        this.maxOutstanding = maxOutstanding;
+        this.window = new Semaphore(maxOutstanding);
+        this.executor = new ThreadPoolExecutor(
+                1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> new Thread(task, "rooms-publisher"),
+                ConfirmingMessagePublisher::waitForSpace
+        );
+        this.confirmLatency = Timer.builder("rooms.publish.confirm")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.nacked = Counter.builder("rooms.publish.failures").tag("reason", "nack").register(meterRegistry);
+        this.failed = Counter.builder("rooms.publish.failures").tag("reason", "error").register(meterRegistry);
+        Gauge.builder("rooms.publish.outstanding", this, ConfirmingMessagePublisher::outstanding)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void publish(Object payload, String exchange, String routingKey) {
+        publishConfirmed(payload, exchange, routingKey);
+    }
+
+    @Override
+    public CompletableFuture<Void> publishConfirmed(Object payload, String exchange, String routingKey) {
+        CompletableFuture<Void> confirmed = new CompletableFuture<>();
+        executor.execute(() -> send(payload, exchange, routingKey, confirmed));
+        return confirmed;
+    }
+
+    int outstanding() {
+        return maxOutstanding - window.availablePermits();
+    }
+
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+        if (!window.tryAcquire(maxOutstanding, 30, TimeUnit.SECONDS))
+            log.warn("Shutting down with {} unconfirmed messages", outstanding());
+        if (rabbitTemplate.getConnectionFactory() instanceof CachingConnectionFactory connectionFactory)
+            connectionFactory.destroy();
+    }
+
+    private static void waitForSpace(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) throw new RejectedExecutionException("Publisher is shut down");
+        try {
+            executor.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for publisher queue", e);
+        }
+    }
+
+    private void send(Object payload, String exchange, String routingKey, CompletableFuture<Void> confirmed) {
+        window.acquireUninterruptibly();
+        long start = System.nanoTime();
+        CorrelationData correlation = new CorrelationData();
+        correlation.getFuture().addCallback(
+                confirm -> {
+                    window.release();
+                    confirmLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    if (confirm != null && !confirm.isAck()) {
+                        nacked.increment();
+                        log.error("Broker rejected {} sent to {}: {}", payload, exchange, confirm.getReason());
+                        confirmed.completeExceptionally(new AmqpException("Broker rejected message: " + confirm.getReason()));
+                    } else {
+                        confirmed.complete(null);
+                    }
+                },
+                e -> {
+                    window.release();
+                    failed.increment();
+                    log.error("Couldn't confirm {} sent to {}", payload, exchange, e);
+                    confirmed.completeExceptionally(e);
+                }
+        );
+        String outcome = "ok";
+        try {
+            rabbitTemplate.convertAndSend(exchange, routingKey, wireFormat.encode(payload, exchange), correlation);
+        } catch (AmqpException e) {
+            outcome = "error";
+            correlation.getFuture().setException(e);
+        } finally {
+            meterRegistry.timer("rooms.publish", "exchange", String.valueOf(exchange), "outcome", outcome)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
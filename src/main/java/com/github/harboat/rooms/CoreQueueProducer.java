@@ -3,16 +3,17 @@ package com.github.harboat.rooms;
 import com.github.harboat.clients.rooms.RoomCreated;
 import com.github.harboat.clients.rooms.RoomGameStart;
 import com.github.harboat.clients.rooms.RoomPlayerJoined;
-import com.github.harboat.rabbitmq.RabbitMQMessageProducer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+
 @Component
 @RequiredArgsConstructor
 public class CoreQueueProducer {
 
-    private final RabbitMQMessageProducer producer;
+    private final MessagePublisher producer;
 
     @Value("${rabbitmq.exchanges.core}")
     private String internalExchange;
@@ -20,15 +21,15 @@ public class CoreQueueProducer {
     @Value("${rabbitmq.routing-keys.core}")
     private String coreRoutingKey;
 
-    void sendRoom(RoomCreated roomCreated) {
-        producer.publish(roomCreated, internalExchange, coreRoutingKey);
+    CompletableFuture<Void> sendRoom(RoomCreated roomCreated) {
+        return producer.publishConfirmed(roomCreated, internalExchange, coreRoutingKey);
     }
 
-    public void sendStart(RoomGameStart roomGameStart) {
-        producer.publish(roomGameStart, internalExchange, coreRoutingKey);
+    public CompletableFuture<Void> sendStart(RoomGameStart roomGameStart) {
+        return producer.publishConfirmed(roomGameStart, internalExchange, coreRoutingKey);
     }
 
-    public void sendPlayerJoin(RoomPlayerJoined roomPlayerJoined) {
-        producer.publish(roomPlayerJoined, internalExchange, coreRoutingKey);
+    public CompletableFuture<Void> sendPlayerJoin(RoomPlayerJoined roomPlayerJoined) {
+        return producer.publishConfirmed(roomPlayerJoined, internalExchange, coreRoutingKey);
     }
 }
@@ -0,0 +1,32 @@
+package com.github.harboat.rooms;
+
+import com.github.harboat.rabbitmq.RabbitMQMessageProducer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnExpression("'${rooms.publisher.mode:}' == 'direct' or ('${rooms.publisher.mode:}' == '' and !${rooms.reactive.enabled:false})")
+@RequiredArgsConstructor
+public class DirectMessagePublisher implements MessagePublisher {
+
+    private final RabbitMQMessageProducer producer;
+    private final MeterRegistry meterRegistry;
+    private final WireFormat wireFormat;
+
+    @Override
+    public void publish(Object payload, String exchange, String routingKey) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "ok";
+        try {
+            producer.publish(wireFormat.encode(payload, exchange), exchange, routingKey);
+        } catch (RuntimeException e) {
+            outcome = "error";
+            throw e;
+        } finally {
+            sample.stop(meterRegistry.timer("rooms.publish", "exchange", String.valueOf(exchange), "outcome", outcome));
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.github.harboat.rooms;
+
+public final class DuplicateMessage extends RuntimeException {
+
+    DuplicateMessage(String messageId) {
+        super("Message " + messageId + " was already applied", null, false, false);
+    }
+}
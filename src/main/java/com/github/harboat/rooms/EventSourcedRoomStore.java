@@ -0,0 +1,213 @@
+package com.github.harboat.rooms;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "rooms.store", havingValue = "event-sourced")
+public class EventSourcedRoomStore implements RoomStore {
+
+    private static final String MESSAGE_ID_INDEX = "room_event_message_id";
+
+    private final RoomRepository repository;
+    private final MongoOperations mongoOperations;
+    private final int snapshotEvery;
+    private final Duration retention;
+    private final Map<String, Room> rooms;
+
+    public EventSourcedRoomStore(
+            RoomRepository repository,
+            MongoOperations mongoOperations,
+            RoomOutbox outbox,
+            @Value("${rooms.event-store.snapshot-every}") int snapshotEvery,
+            @Value("${rooms.event-store.retention}") Duration retention,
+            @Value("${rooms.cache.max-size}") int maxSize
+    ) {
+        if (outbox.isEnabled())
+            throw new IllegalStateException("The event-sourced room store doesn't support the rooms outbox");
+        this.repository = repository;
+        this.mongoOperations = mongoOperations;
+        this.snapshotEvery = snapshotEvery;
+        this.retention = retention;
+        this.rooms = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Room> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        var indexOps = mongoOperations.indexOps(RoomEvent.class);
+        indexOps.ensureIndex(new Index()
+                .on("roomId", Sort.Direction.ASC)
+                .on("sequence", Sort.Direction.ASC)
+                .unique());
+        indexOps.ensureIndex(new Index()
+                .on("messageId", Sort.Direction.ASC)
+                .named(MESSAGE_ID_INDEX)
+                .unique()
+                .partial(PartialIndexFilter.of(where("messageId").exists(true))));
+        indexOps.ensureIndex(new Index()
+                .on("at", Sort.Direction.ASC)
+                .expire(retention));
+    }
+
+    @Override
+    public Room create(Room room) {
+        room.setSequence(1L);
+        room.markProcessed(MessageContext.currentMessageId());
+        Room saved = repository.insert(room);
+        RoomEvent created = event(saved.getId(), 1, RoomEvent.Type.CREATED, saved.getOwnerId(), saved.getLastActivityAt());
+        try {
+            mongoOperations.insert(created);
+        } catch (RuntimeException e) {
+            mongoOperations.remove(query(where("_id").is(saved.getId())), Room.class);
+            if (e instanceof DuplicateKeyException && isDuplicateMessage(e)) throw new DuplicateMessage(created.getMessageId());
+            throw e;
+        }
+        cache(saved.snapshot());
+        return saved;
+    }
+
+    @Override
+    public Optional<Room> findById(String roomId) {
+        return load(roomId);
+    }
+
+    @Override
+    public Optional<Room> findActiveByPlayer(String playerId) {
+        return repository.findFirstByPlayersPlayerIdAndStartedFalse(playerId)
+                .flatMap(stored -> load(stored.getId()))
+                .filter(room -> room.isPlayerInTheRoom(playerId) && !room.hasStarted());
+    }
+
+    @Override
+    public Room join(String roomId, String playerId, List<OutboxEvent> events) {
+        return append(roomId, playerId, RoomError.ROOM_NOT_FOUND, RoomRules::requireCanJoin, RoomEvent.Type.PLAYER_JOINED);
+    }
+
+    @Override
+    public Room markFleetSet(String roomId, String playerId) {
+        return append(roomId, playerId, RoomRules::requirePlayer, RoomEvent.Type.FLEET_SET);
+    }
+
+    @Override
+    public Room unmarkFleetSets(String roomId, String playerId) {
+        return append(roomId, playerId, RoomRules::requirePlayer, RoomEvent.Type.FLEETS_UNSET);
+    }
+
+    @Override
+    public Room changeReadiness(String roomId, String playerId) {
+        return append(roomId, playerId, RoomRules::requireCanChangeReadiness, RoomEvent.Type.READINESS_CHANGED);
+    }
+
+    @Override
+    public Room start(String roomId, String playerId, List<OutboxEvent> events) {
+        return append(roomId, playerId, RoomRules::requireCanStart, RoomEvent.Type.STARTED);
+    }
+
+    Optional<Room> load(String roomId) {
+        Room cached;
+        synchronized (rooms) {
+            cached = rooms.get(roomId);
+        }
+        Optional<Room> base = cached != null ? Optional.of(cached.snapshot()) : repository.findById(roomId);
+        return base.map(room -> {
+            Query tail = query(where("roomId").is(roomId).and("sequence").gt(room.lastSequence()))
+                    .with(Sort.by("sequence"));
+            mongoOperations.find(tail, RoomEvent.class).forEach(event -> event.applyTo(room));
+            cache(room.snapshot());
+            return room;
+        });
+    }
+
+    private Room append(String roomId, String playerId, BiConsumer<Room, String> rules, RoomEvent.Type type) {
+        return append(roomId, playerId, RoomError.GAME_NOT_FOUND, rules, type);
+    }
+
+    private Room append(String roomId, String playerId, RoomError notFound, BiConsumer<Room, String> rules, RoomEvent.Type type) {
+        Room room = load(roomId).orElseThrow(notFound::reject);
+        rules.accept(room, playerId);
+        RoomEvent event = event(roomId, room.lastSequence() + 1, type, playerId, Instant.now());
+        try {
+            mongoOperations.insert(event);
+        } catch (DuplicateKeyException e) {
+            evict(roomId);
+            if (isDuplicateMessage(e)) {
+                log.info("Event for message {} is already in the log of room {}", event.getMessageId(), roomId);
+                throw new DuplicateMessage(event.getMessageId());
+            }
+            throw RoomError.ROOM_CHANGED.reject();
+        }
+        event.applyTo(room);
+        cache(room.snapshot());
+        if (type.isStructural() || room.lastSequence() % snapshotEvery == 0) snapshot(room);
+        else touch(roomId, event.getAt());
+        return room;
+    }
+
+    private static boolean isDuplicateMessage(RuntimeException e) {
+        return e.getMessage() != null && e.getMessage().contains(MESSAGE_ID_INDEX);
+    }
+
+    private void snapshot(Room room) {
+        Criteria older = new Criteria().orOperator(
+                where("sequence").lt(room.lastSequence()),
+                where("sequence").exists(false)
+        );
+        mongoOperations.findAndReplace(query(where("_id").is(room.getId())).addCriteria(older), room.snapshot());
+    }
+
+    private void touch(String roomId, Instant at) {
+        mongoOperations.updateFirst(query(where("_id").is(roomId)), new Update().max("lastActivityAt", at), Room.class);
+    }
+
+    private void cache(Room room) {
+        synchronized (rooms) {
+            Room cached = rooms.get(room.getId());
+            if (cached == null || cached.lastSequence() < room.lastSequence()) rooms.put(room.getId(), room);
+        }
+    }
+
+    private void evict(String roomId) {
+        synchronized (rooms) {
+            rooms.remove(roomId);
+        }
+    }
+
+    private static RoomEvent event(String roomId, long sequence, RoomEvent.Type type, String playerId, Instant at) {
+        return RoomEvent.builder()
+                .roomId(roomId)
+                .sequence(sequence)
+                .type(type)
+                .playerId(playerId)
+                .at(at)
+                .messageId(MessageContext.currentMessageId())
+                .build();
+    }
+}
@@ -0,0 +1,31 @@
+package com.github.harboat.rooms;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+
+@Component
+public class Leadership {
+
+    private final DiscoveryClient discoveryClient;
+    private final ObjectProvider<Registration> registration;
+
+    public Leadership(DiscoveryClient discoveryClient, ObjectProvider<Registration> registration) {
+        this.discoveryClient = discoveryClient;
+        this.registration = registration;
+    }
+
+    public boolean isLeader() {
+        Registration self = registration.getIfAvailable();
+        if (self == null) return true;
+        return discoveryClient.getInstances(self.getServiceId()).stream()
+                .map(ServiceInstance::getInstanceId)
+                .min(Comparator.naturalOrder())
+                .map(leader -> leader.equals(self.getInstanceId()))
+                .orElse(true);
+    }
+}
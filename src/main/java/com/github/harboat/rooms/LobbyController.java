@@ -0,0 +1,40 @@
+package com.github.harboat.rooms;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Optional;
+
+@RestController
+@RequestMapping("/api/v1/rooms")
+@RequiredArgsConstructor
+public class LobbyController {
+
+    private final LobbyReadModel readModel;
+
+    @GetMapping("/{roomId}")
+    public ResponseEntity<RoomView> room(@PathVariable String roomId, WebRequest request) {
+        Optional<RoomView> view = readModel.find(roomId);
+        if (view.isEmpty()) return ResponseEntity.notFound().build();
+        String etag = readModel.etag(view.get());
+        if (request.checkNotModified(etag)) return null;
+        return ResponseEntity.ok().eTag(etag).body(view.get());
+    }
+
+    @GetMapping(value = "/{roomId}/events", produces = "text/event-stream")
+    public ResponseEntity<SseEmitter> events(
+            @PathVariable String roomId,
+            @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId
+    ) {
+        return readModel.subscribe(roomId, lastEventId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
@@ -0,0 +1,169 @@
+package com.github.harboat.rooms;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+@Component
+public class LobbyReadModel {
+
+    private final RoomStore store;
+    private final long ttlMillis;
+    private final long revalidateMillis;
+    private final long streamTimeoutMillis;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Map<String, Entry> views = new ConcurrentHashMap<>();
+    private final Map<String, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong versions = new AtomicLong();
+    private final ThreadPoolExecutor sender;
+
+    public LobbyReadModel(
+            RoomStore store,
+            @Value("${rooms.lobby-view.ttl}") Duration ttl,
+            @Value("${rooms.lobby-view.revalidate-after}") Duration revalidateAfter,
+            @Value("${rooms.lobby-view.stream-timeout}") Duration streamTimeout,
+            @Value("${rooms.lobby-view.queue-capacity}") int queueCapacity
+    ) {
+        this.store = store;
+        this.ttlMillis = ttl.toMillis();
+        this.revalidateMillis = revalidateAfter.toMillis();
+        this.streamTimeoutMillis = streamTimeout.toMillis();
+        this.sender = new ThreadPoolExecutor(
+                1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> new Thread(task, "lobby-events")
+        );
+    }
+
+    public void update(Room room) {
+        long now = System.currentTimeMillis();
+        RoomView.Delta[] delta = new RoomView.Delta[1];
+        views.compute(room.getId(), (roomId, previous) -> {
+            RoomView current = RoomView.of(room, previous == null ? 0 : previous.view().version());
+            if (previous != null && previous.view().sameState(current)) return new Entry(previous.view(), now);
+            current = RoomView.of(room, versions.incrementAndGet());
+            delta[0] = current.deltaFrom(previous == null ? null : previous.view());
+            return new Entry(current, now);
+        });
+        if (delta[0] != null) publish(delta[0]);
+    }
+
+    public Optional<RoomView> find(String roomId) {
+        Entry entry = views.get(roomId);
+        if (entry != null && System.currentTimeMillis() - entry.updatedAt() < revalidateMillis) return Optional.of(entry.view());
+        return revalidate(roomId);
+    }
+
+    public String etag(RoomView view) {
+        return "\"" + epoch + "-" + view.version() + "\"";
+    }
+
+    public Optional<SseEmitter> subscribe(String roomId, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMillis);
+        List<SseEmitter> emitters = subscribers.computeIfAbsent(roomId, k -> new CopyOnWriteArrayList<>());
+        emitters.add(emitter);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        Optional<RoomView> view = find(roomId);
+        if (view.isEmpty()) {
+            emitters.remove(emitter);
+            return Optional.empty();
+        }
+        if (!eventId(view.get().version()).equals(lastEventId)) {
+            RoomView snapshot = view.get();
+            enqueue(emitter, roomId, () -> send(emitter, SseEmitter.event().name("snapshot").id(eventId(snapshot.version())).data(snapshot)));
+        }
+        return Optional.of(emitter);
+    }
+
+    @Scheduled(fixedDelayString = "${rooms.lobby-view.revalidate-interval}")
+    public void revalidateStreams() {
+        long now = System.currentTimeMillis();
+        subscribers.forEach((roomId, emitters) -> {
+            Entry entry = views.get(roomId);
+            if (emitters.isEmpty() || entry != null && now - entry.updatedAt() < revalidateMillis) return;
+            revalidate(roomId);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${rooms.lobby-view.eviction-interval}")
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        views.entrySet().removeIf(entry -> {
+            if (now - entry.getValue().updatedAt() < ttlMillis) return false;
+            List<SseEmitter> emitters = subscribers.remove(entry.getKey());
+            if (emitters != null) emitters.forEach(SseEmitter::complete);
+            return true;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdown();
+        subscribers.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+    }
+
+    int size() {
+        return views.size();
+    }
+
+    private Optional<RoomView> revalidate(String roomId) {
+        Optional<Room> room = store.findById(roomId);
+        if (room.isEmpty()) {
+            views.remove(roomId);
+            return Optional.empty();
+        }
+        update(room.get());
+        return Optional.of(views.get(roomId).view());
+    }
+
+    private void publish(RoomView.Delta delta) {
+        List<SseEmitter> emitters = subscribers.get(delta.roomId());
+        if (emitters == null || emitters.isEmpty()) return;
+        for (SseEmitter emitter : emitters) {
+            enqueue(emitter, delta.roomId(), () -> send(emitter, SseEmitter.event().name("delta").id(eventId(delta.version())).data(delta)));
+        }
+    }
+
+    private void enqueue(SseEmitter emitter, String roomId, Runnable event) {
+        try {
+            sender.execute(event);
+        } catch (RejectedExecutionException e) {
+            log.warn("Lobby event queue is full, closing stream of room {} so it resyncs", roomId);
+            emitter.complete();
+        }
+    }
+
+    private String eventId(long version) {
+        return epoch + "-" + version;
+    }
+
+    private static void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+    }
+
+    private record Entry(RoomView view, long updatedAt) {
+    }
+}
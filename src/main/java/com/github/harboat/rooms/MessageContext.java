@@ -0,0 +1,33 @@
+package com.github.harboat.rooms;
+
+import java.util.function.Supplier;
+
+final class MessageContext {
+
+    private static final ThreadLocal<String> MESSAGE_ID = new ThreadLocal<>();
+
+    private MessageContext() {
+    }
+
+    static void run(String messageId, Runnable action) {
+        call(messageId, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    static <T> T call(String messageId, Supplier<T> action) {
+        String previous = MESSAGE_ID.get();
+        MESSAGE_ID.set(messageId);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) MESSAGE_ID.remove();
+            else MESSAGE_ID.set(previous);
+        }
+    }
+
+    static String currentMessageId() {
+        return MESSAGE_ID.get();
+    }
+}
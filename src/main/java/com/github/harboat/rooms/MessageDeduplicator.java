@@ -0,0 +1,75 @@
+package com.github.harboat.rooms;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Component
+public class MessageDeduplicator {
+
+    enum Verdict {
+        NEW, DUPLICATE, UNKNOWN
+    }
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private final int maxSize;
+    private final long windowMillis;
+    private final int expectedMessages;
+    private final Map<String, Long> recent = new LinkedHashMap<>();
+    private BloomFilter current;
+    private BloomFilter previous;
+    private long rotatedAt;
+
+    public MessageDeduplicator(
+            @Value("${rooms.dedup.max-size}") int maxSize,
+            @Value("${rooms.dedup.window}") Duration window,
+            @Value("${rooms.dedup.expected-messages}") int expectedMessages
+    ) {
+        this.maxSize = maxSize;
+        this.windowMillis = window.toMillis();
+        this.expectedMessages = expectedMessages;
+        this.current = new BloomFilter(expectedMessages, FALSE_POSITIVE_RATE);
+        this.previous = new BloomFilter(expectedMessages, FALSE_POSITIVE_RATE);
+        this.rotatedAt = System.currentTimeMillis();
+    }
+
+    public synchronized Verdict check(String messageId, boolean redelivered) {
+        if (messageId == null) return Verdict.NEW;
+        long now = System.currentTimeMillis();
+        expire(now);
+        if (recent.containsKey(messageId)) return Verdict.DUPLICATE;
+        if (current.mightContain(messageId) || previous.mightContain(messageId) || redelivered) return Verdict.UNKNOWN;
+        return Verdict.NEW;
+    }
+
+    public synchronized void processed(String messageId) {
+        if (messageId == null) return;
+        long now = System.currentTimeMillis();
+        recent.put(messageId, now);
+        current.put(messageId);
+        if (recent.size() > maxSize) {
+            Iterator<String> eldest = recent.keySet().iterator();
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    synchronized int size() {
+        return recent.size();
+    }
+
+    private void expire(long now) {
+        Iterator<Long> timestamps = recent.values().iterator();
+        while (timestamps.hasNext() && now - timestamps.next() > windowMillis) timestamps.remove();
+        if (now - rotatedAt > windowMillis) {
+            previous = current;
+            current = new BloomFilter(expectedMessages, FALSE_POSITIVE_RATE);
+            rotatedAt = now;
+        }
+    }
+}
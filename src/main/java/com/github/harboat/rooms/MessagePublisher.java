@@ -0,0 +1,13 @@
+package com.github.harboat.rooms;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface MessagePublisher {
+
+    void publish(Object payload, String exchange, String routingKey);
+
+    default CompletableFuture<Void> publishConfirmed(Object payload, String exchange, String routingKey) {
+        publish(payload, exchange, routingKey);
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -1,16 +1,18 @@
 package com.github.harboat.rooms;
 
+import com.github.harboat.clients.notification.EventType;
 import com.github.harboat.clients.notification.NotificationRequest;
-import com.github.harboat.rabbitmq.RabbitMQMessageProducer;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 @RequiredArgsConstructor
 public class NotificationProducer {
 
-    private final RabbitMQMessageProducer producer;
+    private final MessagePublisher producer;
 
     @Value("${rabbitmq.exchanges.notification}")
     private String internalExchange;
@@ -18,9 +20,23 @@ public class NotificationProducer {
     @Value("${rabbitmq.routing-keys.notification}")
     private String notificationRoutingKey;
 
+    @Value("${rabbitmq.routing-keys.notification-broadcast}")
+    private String broadcastRoutingKey;
+
+    @Value("${rooms.notifications.broadcast}")
+    private boolean broadcast;
+
     public void sendNotification(NotificationRequest<?> notification) {
         producer.publish(notification, internalExchange, notificationRoutingKey);
     }
 
+    public <T> void broadcast(String roomId, List<String> recipients, EventType type, T body) {
+        if (broadcast && recipients.size() > 1) {
+            producer.publish(new RoomBroadcast<>(roomId, recipients, type, body), internalExchange, broadcastRoutingKey);
+            return;
+        }
+        recipients.forEach(recipient -> sendNotification(new NotificationRequest<>(recipient, type, body)));
+    }
+
 }
 
@@ -0,0 +1,49 @@
+package com.github.harboat.rooms;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+@Component
+public class OpenRooms {
+
+    private final Map<String, String> owners = new ConcurrentHashMap<>();
+    private final Queue<String> waiting = new ConcurrentLinkedQueue<>();
+
+    public void open(String roomId, String ownerId) {
+        if (owners.putIfAbsent(roomId, ownerId) == null) waiting.offer(roomId);
+    }
+
+    public void close(String roomId) {
+        owners.remove(roomId);
+    }
+
+    public Optional<String> claim(String playerId) {
+        List<String> ownRooms = new ArrayList<>(1);
+        try {
+            String roomId;
+            while ((roomId = waiting.poll()) != null) {
+                String ownerId = owners.get(roomId);
+                if (ownerId == null) continue;
+                if (ownerId.equals(playerId)) {
+                    ownRooms.add(roomId);
+                    continue;
+                }
+                if (owners.remove(roomId, ownerId)) return Optional.of(roomId);
+            }
+            return Optional.empty();
+        } finally {
+            ownRooms.forEach(waiting::offer);
+        }
+    }
+
+    int size() {
+        return owners.size();
+    }
+}
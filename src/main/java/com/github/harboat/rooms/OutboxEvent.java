@@ -0,0 +1,12 @@
+package com.github.harboat.rooms;
+
+import lombok.*;
+
+@AllArgsConstructor @NoArgsConstructor
+@Getter @Setter @ToString
+@Builder
+public class OutboxEvent {
+    private String eventId;
+    private String type;
+    private String payload;
+}
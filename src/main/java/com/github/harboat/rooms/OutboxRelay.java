@@ -0,0 +1,111 @@
+package com.github.harboat.rooms;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "rooms.outbox.enabled", havingValue = "true")
+public class OutboxRelay {
+
+    private static final String OUTBOX_EVENT_ID = "outbox.eventId";
+
+    private final MongoOperations mongoOperations;
+    private final RoomOutbox outbox;
+    private final RoomEventDispatcher dispatcher;
+    private final Leadership leadership;
+    private final int batchSize;
+    private final long confirmTimeoutMillis;
+
+    public OutboxRelay(
+            MongoOperations mongoOperations,
+            RoomOutbox outbox,
+            RoomEventDispatcher dispatcher,
+            Leadership leadership,
+            @Value("${rooms.outbox.relay-batch-size}") int batchSize,
+            @Value("${rooms.outbox.confirm-timeout}") Duration confirmTimeout
+    ) {
+        this.mongoOperations = mongoOperations;
+        this.outbox = outbox;
+        this.dispatcher = dispatcher;
+        this.leadership = leadership;
+        this.batchSize = batchSize;
+        this.confirmTimeoutMillis = confirmTimeout.toMillis();
+    }
+
+    @PostConstruct
+    public void ensureIndex() {
+        mongoOperations.indexOps(Room.class)
+                .ensureIndex(new Index().on(OUTBOX_EVENT_ID, Sort.Direction.ASC).sparse());
+    }
+
+    @Scheduled(fixedDelayString = "${rooms.outbox.relay-interval}")
+    public void relay() {
+        if (!leadership.isLeader()) return;
+        Query pendingRooms = query(where(OUTBOX_EVENT_ID).exists(true)).limit(batchSize);
+        pendingRooms.fields().include("outbox");
+        List<Room> rooms = mongoOperations.find(pendingRooms, Room.class);
+        List<List<CompletableFuture<Void>>> confirms = new ArrayList<>(rooms.size());
+        for (Room room : rooms) confirms.add(dispatch(room));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(confirmTimeoutMillis);
+        for (int i = 0; i < rooms.size(); i++) acknowledge(rooms.get(i), confirms.get(i), deadline);
+    }
+
+    private List<CompletableFuture<Void>> dispatch(Room room) {
+        List<CompletableFuture<Void>> confirms = new ArrayList<>(room.getOutbox().size());
+        try {
+            for (OutboxEvent event : room.getOutbox()) confirms.add(dispatcher.dispatch(outbox.payloadOf(event)));
+        } catch (RuntimeException e) {
+            log.error("Couldn't relay outbox of room {}", room.getId(), e);
+        }
+        return confirms;
+    }
+
+    private void acknowledge(Room room, List<CompletableFuture<Void>> confirms, long deadline) {
+        List<String> sent = new ArrayList<>(confirms.size());
+        for (int i = 0; i < confirms.size(); i++) {
+            if (!confirmed(room, confirms.get(i), deadline)) break;
+            sent.add(room.getOutbox().get(i).getEventId());
+        }
+        if (sent.isEmpty()) return;
+        mongoOperations.updateFirst(
+                query(where("_id").is(room.getId())),
+                new Update().pull("outbox", new Document("eventId", new Document("$in", sent))),
+                Room.class
+        );
+    }
+
+    private boolean confirmed(Room room, CompletableFuture<Void> confirm, long deadline) {
+        try {
+            confirm.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (ExecutionException | TimeoutException e) {
+            log.error("Outbox event of room {} wasn't confirmed, keeping it for the next relay", room.getId(), e);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -6,6 +6,7 @@ import lombok.*;
 @Getter @Setter @ToString
 @Builder
 public class Player {
+    private String playerId;
     private Boolean ready;
     private Boolean fleetSet;
 }
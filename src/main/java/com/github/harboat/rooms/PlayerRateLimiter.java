@@ -0,0 +1,68 @@
+package com.github.harboat.rooms;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class PlayerRateLimiter {
+
+    enum Policy {
+        DROP, REJECT
+    }
+
+    private final boolean enabled;
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final Policy policy;
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    public PlayerRateLimiter(
+            @Value("${rooms.rate-limit.enabled}") boolean enabled,
+            @Value("${rooms.rate-limit.rate}") double ratePerSecond,
+            @Value("${rooms.rate-limit.burst}") int burst,
+            @Value("${rooms.rate-limit.policy}") Policy policy
+    ) {
+        this.enabled = enabled;
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        this.burstNanos = intervalNanos * Math.max(0, burst - 1);
+        this.policy = policy;
+    }
+
+    public Policy policy() {
+        return policy;
+    }
+
+    public boolean tryAcquire(String playerId) {
+        if (!enabled || playerId == null) return true;
+        return tryAcquire(playerId, System.nanoTime());
+    }
+
+    boolean tryAcquire(String playerId, long now) {
+        AtomicLong bucket = buckets.computeIfAbsent(playerId, k -> new AtomicLong(Long.MIN_VALUE));
+        while (true) {
+            long theoreticalArrival = bucket.get();
+            long start = Math.max(theoreticalArrival, now);
+            if (start - now > burstNanos) return false;
+            if (bucket.compareAndSet(theoreticalArrival, start + intervalNanos)) return true;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rooms.rate-limit.cleanup-interval}")
+    public void evictIdle() {
+        evictIdle(System.nanoTime());
+    }
+
+    void evictIdle(long now) {
+        buckets.values().removeIf(bucket -> bucket.get() <= now);
+    }
+
+    int size() {
+        return buckets.size();
+    }
+}
@@ -0,0 +1,4 @@
+package com.github.harboat.rooms;
+
+public record QuickRoomJoin(String playerId) {
+}
@@ -0,0 +1,18 @@
+package com.github.harboat.rooms;
+
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface ReactiveAtomicRoomOperations {
+
+    Mono<Room> addPlayer(String roomId, String playerId, List<OutboxEvent> events, String messageId);
+
+    Mono<Room> markFleetSet(String roomId, String playerId, String messageId);
+
+    Mono<Room> unmarkFleetSets(String roomId, String playerId, String messageId);
+
+    Mono<Room> toggleReadiness(String roomId, String playerId, String messageId);
+
+    Mono<Room> markStarted(String roomId, String playerId, List<OutboxEvent> events, String messageId);
+}
@@ -0,0 +1,42 @@
+package com.github.harboat.rooms;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.mongodb.core.ReactiveMongoOperations;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+class ReactiveAtomicRoomOperationsImpl implements ReactiveAtomicRoomOperations {
+
+    private final ReactiveMongoOperations mongoOperations;
+
+    @Override
+    public Mono<Room> addPlayer(String roomId, String playerId, List<OutboxEvent> events, String messageId) {
+        return modify(RoomMutations.addPlayer(roomId, playerId, events, messageId));
+    }
+
+    @Override
+    public Mono<Room> markFleetSet(String roomId, String playerId, String messageId) {
+        return modify(RoomMutations.markFleetSet(roomId, playerId, messageId));
+    }
+
+    @Override
+    public Mono<Room> unmarkFleetSets(String roomId, String playerId, String messageId) {
+        return modify(RoomMutations.unmarkFleetSets(roomId, playerId, messageId));
+    }
+
+    @Override
+    public Mono<Room> toggleReadiness(String roomId, String playerId, String messageId) {
+        return modify(RoomMutations.toggleReadiness(roomId, playerId, messageId));
+    }
+
+    @Override
+    public Mono<Room> markStarted(String roomId, String playerId, List<OutboxEvent> events, String messageId) {
+        return modify(RoomMutations.markStarted(roomId, playerId, events, messageId));
+    }
+
+    private Mono<Room> modify(RoomMutations.Mutation mutation) {
+        return mongoOperations.findAndModify(mutation.query(), mutation.update(), RoomMutations.RETURN_NEW, Room.class);
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.harboat.rooms;
+
+import com.rabbitmq.client.Address;
+import com.rabbitmq.client.Connection;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.RabbitProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.publisher.Mono;
+import reactor.rabbitmq.ChannelPool;
+import reactor.rabbitmq.ChannelPoolFactory;
+import reactor.rabbitmq.ChannelPoolOptions;
+import reactor.rabbitmq.RabbitFlux;
+import reactor.rabbitmq.Receiver;
+import reactor.rabbitmq.ReceiverOptions;
+import reactor.rabbitmq.Sender;
+import reactor.rabbitmq.SenderOptions;
+
+@Configuration
+@ConditionalOnExpression("${rooms.reactive.enabled:false} or '${rooms.publisher.mode:}' == 'reactive'")
+public class ReactiveRabbitConfiguration {
+
+    @Bean
+    public Mono<Connection> reactiveRabbitConnection(
+            RabbitProperties rabbitProperties,
+            CachingConnectionFactory connectionFactory
+    ) {
+        Address[] addresses = Address.parseAddresses(rabbitProperties.determineAddresses());
+        return Mono.fromCallable(() -> connectionFactory.getRabbitConnectionFactory()
+                        .newConnection(addresses, "rooms-reactive"))
+                .cache();
+    }
+
+    @Bean(destroyMethod = "close")
+    public ChannelPool reactiveRabbitChannelPool(
+            Mono<Connection> reactiveRabbitConnection,
+            @Value("${rooms.reactive.channel-pool-size}") int channelPoolSize
+    ) {
+        return ChannelPoolFactory.createChannelPool(
+                reactiveRabbitConnection,
+                new ChannelPoolOptions().maxCacheSize(channelPoolSize)
+        );
+    }
+
+    @Bean(destroyMethod = "close")
+    public Sender reactiveRabbitSender(Mono<Connection> reactiveRabbitConnection) {
+        return RabbitFlux.createSender(new SenderOptions().connectionMono(reactiveRabbitConnection));
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "rooms.reactive.enabled", havingValue = "true")
+    public Receiver reactiveRabbitReceiver(Mono<Connection> reactiveRabbitConnection) {
+        return RabbitFlux.createReceiver(new ReceiverOptions().connectionMono(reactiveRabbitConnection));
+    }
+}
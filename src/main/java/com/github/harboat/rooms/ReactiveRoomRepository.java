@@ -0,0 +1,11 @@
+package com.github.harboat.rooms;
+
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveRoomRepository extends ReactiveMongoRepository<Room, String>, ReactiveAtomicRoomOperations {
+
+    Mono<Room> findFirstByPlayersPlayerIdAndStartedFalse(String playerId);
+
+    Mono<Boolean> existsByProcessedMessageIds(String messageId);
+}
@@ -0,0 +1,199 @@
+package com.github.harboat.rooms;
+
+import com.github.harboat.clients.configuration.ConfigurationCreate;
+import com.github.harboat.clients.configuration.ConfigurationPlayerJoin;
+import com.github.harboat.clients.configuration.CreateGame;
+import com.github.harboat.clients.notification.EventType;
+import com.github.harboat.clients.notification.NotificationRequest;
+import com.github.harboat.clients.rooms.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.types.ObjectId;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+@Service
+@AllArgsConstructor
+@ConditionalOnProperty(name = "rooms.reactive.enabled", havingValue = "true")
+public class ReactiveRoomService {
+
+    private ReactiveRoomStore store;
+    private RoomOutbox outbox;
+    private RoomEventDispatcher dispatcher;
+    private OpenRooms openRooms;
+    private NotificationProducer notificationProducer;
+    private RoomLifecycle lifecycle;
+    private MeterRegistry meterRegistry;
+    private MessageDeduplicator deduplicator;
+    private LobbyReadModel readModel;
+
+    public Mono<Object> resolve(Object command, String messageId, boolean redelivered) {
+        if (!(command instanceof QuickRoomJoin quickRoomJoin)) return Mono.just(command);
+        return isDuplicate(messageId, redelivered).map(duplicate -> duplicate ? command : openRooms.claim(quickRoomJoin.playerId())
+                .<Object>map(roomId -> new RoomPlayerJoin(roomId, quickRoomJoin.playerId()))
+                .orElseGet(() -> new RoomCreate(quickRoomJoin.playerId())));
+    }
+
+    public Mono<Void> handle(Object command, String messageId, boolean redelivered) {
+        return isDuplicate(messageId, redelivered).flatMap(duplicate -> {
+            if (duplicate) {
+                log.info("Skipping already processed message {} ({})", messageId, command);
+                meterRegistry.counter("rooms.commands.duplicates", "type", command.getClass().getSimpleName()).increment();
+                return Mono.empty();
+            }
+            return handle(command)
+                    .doOnSuccess(v -> deduplicator.processed(messageId))
+                    .contextWrite(context -> messageId == null ? context : context.put(ReactiveRoomStore.MESSAGE_ID, messageId));
+        });
+    }
+
+    public Mono<Void> handle(Object command) {
+        if (command instanceof RoomCreate roomCreate) {
+            return handle(roomCreate, roomCreate.playerId(), create(roomCreate));
+        } else if (command instanceof RoomPlayerJoin roomPlayerJoin) {
+            return handle(roomPlayerJoin, roomPlayerJoin.playerId(), joinPlayer(roomPlayerJoin));
+        } else if (command instanceof ChangePlayerReadiness playerReadiness) {
+            return handle(playerReadiness, playerReadiness.playerId(), changeReady(playerReadiness));
+        } else if (command instanceof MarkStart markStart) {
+            return handle(markStart, markStart.playerId(), markStart(markStart));
+        } else if (command instanceof MarkFleetSet markFleetSet) {
+            return handle(markFleetSet, markFleetSet.playerId(), markFleetSet(markFleetSet));
+        } else if (command instanceof UnmarkFleetSet unmarkFleetSet) {
+            return handle(unmarkFleetSet, unmarkFleetSet.playerId(), unmarkFleet(unmarkFleetSet));
+        }
+        log.warn("Dropping unsupported rooms message {}", command);
+        return Mono.empty();
+    }
+
+    public Mono<Void> create(RoomCreate roomCreate) {
+        return Mono.deferContextual(context -> create(roomCreate, ReactiveRoomStore.messageId(context)));
+    }
+
+    private Mono<Void> create(RoomCreate roomCreate, String messageId) {
+        return store.findActiveByPlayer(roomCreate.playerId())
+                .filter(room -> !lifecycle.isExpired(room))
+                .hasElement()
+                .flatMap(active -> {
+                    if (active) return Mono.error(RoomError.ALREADY_IN_A_ROOM.reject());
+                    String roomId = new ObjectId().toHexString();
+                    List<Object> events = List.of(
+                            new RoomCreated(roomId, roomCreate.playerId()),
+                            new ConfigurationCreate(roomId, roomCreate.playerId())
+                    );
+                    Room room = Room.builder()
+                            .id(roomId)
+                            .players(List.of(new Player(roomCreate.playerId(), false, false)))
+                            .ownerId(roomCreate.playerId())
+                            .started(false)
+                            .outbox(new ArrayList<>(outbox.record(events)))
+                            .lastActivityAt(Instant.now())
+                            .build();
+                    room.markProcessed(messageId);
+                    return store.create(room).doOnNext(created -> {
+                        track(created);
+                        openRooms.open(created.getId(), roomCreate.playerId());
+                        publish(events);
+                    });
+                })
+                .then();
+    }
+
+    public Mono<Void> joinPlayer(RoomPlayerJoin roomPlayerJoin) {
+        List<Object> events = List.of(
+                new ConfigurationPlayerJoin(roomPlayerJoin.roomId(), roomPlayerJoin.playerId()),
+                new RoomPlayerJoined(roomPlayerJoin.roomId(), roomPlayerJoin.playerId())
+        );
+        return store.join(roomPlayerJoin.roomId(), roomPlayerJoin.playerId(), outbox.record(events))
+                .doOnNext(room -> {
+                    track(room);
+                    openRooms.close(roomPlayerJoin.roomId());
+                    publish(events);
+                })
+                .then();
+    }
+
+    public Mono<Void> markFleetSet(MarkFleetSet markFleetSet) {
+        return store.markFleetSet(markFleetSet.roomId(), markFleetSet.playerId())
+                .doOnNext(this::track)
+                .then();
+    }
+
+    public Mono<Void> unmarkFleet(UnmarkFleetSet unmarkFleetSet) {
+        return store.unmarkFleetSets(unmarkFleetSet.roomId(), unmarkFleetSet.playerId())
+                .doOnNext(this::track)
+                .then();
+    }
+
+    public Mono<Void> changeReady(ChangePlayerReadiness playerReadiness) {
+        return store.changeReadiness(playerReadiness.roomId(), playerReadiness.playerId())
+                .doOnNext(room -> {
+                    track(room);
+                    boolean ready = room.isPlayerReady(playerReadiness.playerId());
+                    notificationProducer.broadcast(room.getId(), room.playerIds(),
+                            ready ? EventType.PLAYER_READY : EventType.PLAYER_UNREADY, playerReadiness);
+                })
+                .then();
+    }
+
+    public Mono<Void> markStart(MarkStart markStart) {
+        List<Object> events = List.of(
+                new RoomGameStart(markStart.roomId()),
+                new CreateGame(markStart.roomId(), markStart.playerId())
+        );
+        return store.start(markStart.roomId(), markStart.playerId(), outbox.record(events))
+                .doOnNext(room -> {
+                    track(room);
+                    openRooms.close(markStart.roomId());
+                    publish(events);
+                })
+                .then();
+    }
+
+    private Mono<Boolean> isDuplicate(String messageId, boolean redelivered) {
+        return switch (deduplicator.check(messageId, redelivered)) {
+            case NEW -> Mono.just(false);
+            case DUPLICATE -> Mono.just(true);
+            case UNKNOWN -> store.isProcessed(messageId);
+        };
+    }
+
+    private Mono<Void> handle(Object command, String playerId, Mono<Void> action) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return action
+                    .doOnSuccess(v -> stop(sample, command, "ok"))
+                    .onErrorResume(RoomRejection.class, e -> {
+                        stop(sample, command, e.code().outcome());
+                        meterRegistry.counter("rooms.commands.rejections", "code", e.code().name()).increment();
+                        notificationProducer.sendNotification(
+                                new NotificationRequest<>(playerId, EventType.EXCEPTION, e.code().notice())
+                        );
+                        return Mono.empty();
+                    })
+                    .doOnError(e -> stop(sample, command, "error"));
+        });
+    }
+
+    private void stop(Timer.Sample sample, Object command, String outcome) {
+        sample.stop(meterRegistry.timer("rooms.commands",
+                "type", command.getClass().getSimpleName(),
+                "outcome", outcome));
+    }
+
+    private void track(Room room) {
+        lifecycle.track(room);
+        readModel.update(room);
+    }
+
+    private void publish(List<Object> events) {
+        if (!outbox.isEnabled()) events.forEach(dispatcher::dispatch);
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.harboat.rooms;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.context.ContextView;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+@Component
+@ConditionalOnProperty(name = "rooms.reactive.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ReactiveRoomStore {
+
+    static final String MESSAGE_ID = "rooms.messageId";
+
+    private final ReactiveRoomRepository repository;
+
+    public Mono<Room> create(Room room) {
+        return repository.insert(room);
+    }
+
+    public Mono<Boolean> isProcessed(String messageId) {
+        return repository.existsByProcessedMessageIds(messageId);
+    }
+
+    public Mono<Room> findActiveByPlayer(String playerId) {
+        return repository.findFirstByPlayersPlayerIdAndStartedFalse(playerId);
+    }
+
+    public Mono<Room> join(String roomId, String playerId, List<OutboxEvent> events) {
+        return Mono.deferContextual(context -> repository.addPlayer(roomId, playerId, events, messageId(context)))
+                .switchIfEmpty(rejection(roomId, playerId, RoomError.ROOM_NOT_FOUND, RoomRules::requireCanJoin));
+    }
+
+    public Mono<Room> markFleetSet(String roomId, String playerId) {
+        return Mono.deferContextual(context -> repository.markFleetSet(roomId, playerId, messageId(context)))
+                .switchIfEmpty(rejection(roomId, playerId, RoomRules::requirePlayer));
+    }
+
+    public Mono<Room> unmarkFleetSets(String roomId, String playerId) {
+        return Mono.deferContextual(context -> repository.unmarkFleetSets(roomId, playerId, messageId(context)))
+                .switchIfEmpty(rejection(roomId, playerId, RoomRules::requirePlayer));
+    }
+
+    public Mono<Room> changeReadiness(String roomId, String playerId) {
+        return Mono.deferContextual(context -> repository.toggleReadiness(roomId, playerId, messageId(context)))
+                .switchIfEmpty(rejection(roomId, playerId, RoomRules::requireCanChangeReadiness));
+    }
+
+    public Mono<Room> start(String roomId, String playerId, List<OutboxEvent> events) {
+        return Mono.deferContextual(context -> repository.markStarted(roomId, playerId, events, messageId(context)))
+                .switchIfEmpty(rejection(roomId, playerId, RoomRules::requireCanStart));
+    }
+
+    static String messageId(ContextView context) {
+        return context.getOrDefault(MESSAGE_ID, null);
+    }
+
+    private Mono<Room> rejection(String roomId, String playerId, BiConsumer<Room, String> rules) {
+        return rejection(roomId, playerId, RoomError.GAME_NOT_FOUND, rules);
+    }
+
+    private Mono<Room> rejection(String roomId, String playerId, RoomError notFound, BiConsumer<Room, String> rules) {
+        return Mono.defer(() -> repository.findById(roomId))
+                .switchIfEmpty(Mono.error(notFound::reject))
+                .flatMap(room -> {
+                    rules.accept(room, playerId);
+                    return Mono.error(RoomError.ROOM_CHANGED.reject());
+                });
+    }
+}
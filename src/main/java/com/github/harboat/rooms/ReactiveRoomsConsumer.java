@@ -0,0 +1,147 @@
+package com.github.harboat.rooms;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.rabbitmq.AcknowledgableDelivery;
+import reactor.rabbitmq.ConsumeOptions;
+import reactor.rabbitmq.Receiver;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "rooms.reactive.enabled", havingValue = "true")
+public class ReactiveRoomsConsumer {
+
+    private final Receiver receiver;
+    private final ReactiveRoomService service;
+    private final MessageConverter messageConverter;
+    private final AmqpAdmin amqpAdmin;
+    private final String queue;
+    private final int prefetch;
+    private final int concurrency;
+    private final Duration retryBackoff;
+    private final Duration maxRetryBackoff;
+    private final MessagePropertiesConverter propertiesConverter = new DefaultMessagePropertiesConverter();
+    private Disposable subscription;
+
+    public ReactiveRoomsConsumer(
+            Receiver receiver,
+            ReactiveRoomService service,
+            MessageConverter messageConverter,
+            AmqpAdmin amqpAdmin,
+            @Value("${rabbitmq.queues.rooms}") String queue,
+            @Value("${rooms.reactive.prefetch}") int prefetch,
+            @Value("${rooms.reactive.concurrency}") int concurrency,
+            @Value("${rooms.reactive.retry-backoff}") Duration retryBackoff,
+            @Value("${rooms.reactive.max-retry-backoff}") Duration maxRetryBackoff
+    ) {
+        this.receiver = receiver;
+        this.service = service;
+        this.messageConverter = messageConverter;
+        this.amqpAdmin = amqpAdmin;
+        this.queue = queue;
+        this.prefetch = prefetch;
+        this.concurrency = concurrency;
+        this.retryBackoff = retryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (amqpAdmin instanceof RabbitAdmin rabbitAdmin) rabbitAdmin.initialize();
+        subscription = consume(deliveries())
+                .subscribe(null, e -> log.error("Rooms consumer stopped", e));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) subscription.dispose();
+    }
+
+    Flux<AcknowledgableDelivery> deliveries() {
+        return Flux.defer(() -> receiver.consumeManualAck(queue, new ConsumeOptions().qos(prefetch)))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, retryBackoff)
+                        .maxBackoff(maxRetryBackoff)
+                        .doBeforeRetry(signal -> log.warn("Rooms consumer failed, resubscribing", signal.failure())));
+    }
+
+    Flux<Void> consume(Flux<AcknowledgableDelivery> deliveries) {
+        return deliveries
+                .concatMap(this::resolve)
+                .groupBy(inbound -> Math.floorMod(RoomCommandHandler.roomKey(inbound.command()).hashCode(), concurrency), prefetch)
+                .flatMap(group -> group.concatMap(this::process), concurrency);
+    }
+
+    private Mono<Inbound> resolve(AcknowledgableDelivery delivery) {
+        String messageId = delivery.getProperties().getMessageId();
+        boolean redelivered = delivery.getEnvelope().isRedeliver();
+        return Mono.fromCallable(() -> convert(delivery))
+                .flatMap(command -> service.resolve(command, messageId, redelivered))
+                .map(command -> new Inbound(delivery, command, messageId, redelivered))
+                .onErrorResume(MessageConversionException.class, e -> {
+                    log.error("Dropping unreadable rooms message", e);
+                    nack(delivery, false);
+                    return Mono.empty();
+                })
+                .onErrorResume(e -> {
+                    log.error("Resolving rooms message {} failed, requeueing", messageId, e);
+                    nack(delivery, true);
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> process(Inbound inbound) {
+        return service.handle(inbound.command(), inbound.messageId(), inbound.redelivered())
+                .doOnSuccess(v -> ack(inbound.delivery()))
+                .onErrorResume(e -> {
+                    log.error("Processing of {} failed, requeueing", inbound.command(), e);
+                    nack(inbound.delivery(), true);
+                    return Mono.empty();
+                });
+    }
+
+    private static void ack(AcknowledgableDelivery delivery) {
+        try {
+            delivery.ack();
+        } catch (RuntimeException e) {
+            log.error("Couldn't ack rooms message {}, the broker will redeliver it", delivery.getProperties().getMessageId(), e);
+        }
+    }
+
+    private static void nack(AcknowledgableDelivery delivery, boolean requeue) {
+        try {
+            delivery.nack(requeue);
+        } catch (RuntimeException e) {
+            log.error("Couldn't nack rooms message {}", delivery.getProperties().getMessageId(), e);
+        }
+    }
+
+    private Object convert(AcknowledgableDelivery delivery) {
+        MessageProperties properties = propertiesConverter.toMessageProperties(
+                delivery.getProperties(), delivery.getEnvelope(), StandardCharsets.UTF_8.name()
+        );
+        return messageConverter.fromMessage(new Message(delivery.getBody(), properties));
+    }
+
+    private record Inbound(AcknowledgableDelivery delivery, Object command, String messageId, boolean redelivered) {
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.harboat.rooms;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.support.DefaultMessagePropertiesConverter;
+import org.springframework.amqp.rabbit.support.MessagePropertiesConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.rabbitmq.ChannelPool;
+import reactor.rabbitmq.OutboundMessage;
+import reactor.rabbitmq.SendOptions;
+import reactor.rabbitmq.Sender;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+@Slf4j
+@Component
+@ConditionalOnExpression("'${rooms.publisher.mode:}' == 'reactive' or ('${rooms.publisher.mode:}' == '' and ${rooms.reactive.enabled:false})")
+public class ReactorMessagePublisher implements MessagePublisher {
+
+    private final Sender sender;
+    private final SendOptions sendOptions;
+    private final MessageConverter messageConverter;
+    private final WireFormat wireFormat;
+    private final MessagePropertiesConverter propertiesConverter = new DefaultMessagePropertiesConverter();
+
+    public ReactorMessagePublisher(Sender sender, ChannelPool channelPool, MessageConverter messageConverter, WireFormat wireFormat) {
+        this.sender = sender;
+        this.sendOptions = new SendOptions().channelPool(channelPool);
+        this.messageConverter = messageConverter;
+        this.wireFormat = wireFormat;
+    }
+
+    @Override
+    public void publish(Object payload, String exchange, String routingKey) {
+        send(payload, exchange, routingKey)
+                .subscribe(null, e -> log.error("Couldn't publish {} to {}", payload, exchange, e));
+    }
+
+    @Override
+    public CompletableFuture<Void> publishConfirmed(Object payload, String exchange, String routingKey) {
+        return send(payload, exchange, routingKey).toFuture();
+    }
+
+    public Mono<Void> send(Object payload, String exchange, String routingKey) {
+        return Mono.fromCallable(() -> outbound(payload, exchange, routingKey))
+                .flatMap(message -> sender.send(Mono.just(message), sendOptions));
+    }
+
+    private OutboundMessage outbound(Object payload, String exchange, String routingKey) {
+        Message message = wireFormat.encode(payload, exchange) instanceof Message encoded
+                ? encoded
+                : messageConverter.toMessage(payload, new MessageProperties());
+        return new OutboundMessage(
+                exchange,
+                routingKey,
+                propertiesConverter.fromMessageProperties(message.getMessageProperties(), StandardCharsets.UTF_8.name()),
+                message.getBody()
+        );
+    }
+}
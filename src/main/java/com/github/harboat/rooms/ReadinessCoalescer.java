@@ -0,0 +1,114 @@
+package com.github.harboat.rooms;
+
+import com.github.harboat.clients.rooms.ChangePlayerReadiness;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class ReadinessCoalescer {
+
+    private static final int LOCKS = 64;
+
+    private final long windowNanos;
+    private final Counter coalesced;
+    private final Map<String, PendingRoom> pending = new ConcurrentHashMap<>();
+    private final Object[] locks = new Object[LOCKS];
+
+    public ReadinessCoalescer(
+            @Value("${rooms.readiness.coalesce-window}") Duration window,
+            @Value("${rooms.partitions.enabled}") boolean partitioned,
+            MeterRegistry meterRegistry
+    ) {
+        if (window.toNanos() > 0 && !partitioned)
+            throw new IllegalStateException("rooms.readiness.coalesce-window holds toggles in memory and needs rooms.partitions.enabled=true so each room has a single owner");
+        this.windowNanos = window.toNanos();
+        for (int i = 0; i < LOCKS; i++) locks[i] = new Object();
+        this.coalesced = meterRegistry.counter("rooms.readiness.coalesced");
+    }
+
+    public boolean isEnabled() {
+        return windowNanos > 0;
+    }
+
+    public Object lockFor(String roomId) {
+        return locks[Math.floorMod(roomId.hashCode(), LOCKS)];
+    }
+
+    public void offer(ChangePlayerReadiness playerReadiness, String messageId) {
+        offer(playerReadiness, messageId, System.nanoTime());
+    }
+
+    void offer(ChangePlayerReadiness playerReadiness, String messageId, long now) {
+        pending.compute(playerReadiness.roomId(), (roomId, room) -> {
+            PendingRoom result = room == null ? new PendingRoom(now + windowNanos) : room;
+            Toggles toggles = result.players.computeIfAbsent(playerReadiness.playerId(), k -> new Toggles());
+            toggles.last = new Toggle(playerReadiness, messageId);
+            toggles.count++;
+            return result;
+        });
+    }
+
+    public List<Toggle> drain(String roomId) {
+        PendingRoom room = pending.remove(roomId);
+        if (room == null) return List.of();
+        List<Toggle> net = new ArrayList<>(room.players.size());
+        int folded = 0;
+        for (Toggles toggles : room.players.values()) {
+            if (toggles.count % 2 == 1) {
+                net.add(toggles.last);
+                folded += toggles.count - 1;
+            } else {
+                folded += toggles.count;
+            }
+        }
+        coalesced.increment(folded);
+        return net;
+    }
+
+    public List<String> dueRooms() {
+        return dueRooms(System.nanoTime());
+    }
+
+    List<String> dueRooms(long now) {
+        if (pending.isEmpty()) return List.of();
+        List<String> due = new ArrayList<>();
+        pending.forEach((roomId, room) -> {
+            if (room.dueAt - now <= 0) due.add(roomId);
+        });
+        return due;
+    }
+
+    public boolean isPending(String roomId) {
+        return pending.containsKey(roomId);
+    }
+
+    int size() {
+        return pending.size();
+    }
+
+    public record Toggle(ChangePlayerReadiness command, String messageId) {
+    }
+
+    private static final class PendingRoom {
+        private final long dueAt;
+        private final Map<String, Toggles> players = new LinkedHashMap<>(4);
+
+        private PendingRoom(long dueAt) {
+            this.dueAt = dueAt;
+        }
+    }
+
+    private static final class Toggles {
+        private Toggle last;
+        private int count;
+    }
+}
@@ -0,0 +1,4 @@
+package com.github.harboat.rooms;
+
+public record RejectionNotice(RoomError code, int status, String message) {
+}
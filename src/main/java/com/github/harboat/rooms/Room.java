@@ -1,71 +1,216 @@
 package com.github.harboat.rooms;
 
 import lombok.*;
+import org.springframework.data.annotation.AccessType;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-import java.util.Map;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 @Document
-@AllArgsConstructor @NoArgsConstructor
+@NoArgsConstructor
 @Getter @Setter @ToString
-@Builder
 public class Room {
+    private static final int SLOTS = 2;
+    private static final int READY = 0b01;
+    private static final int FLEET_SET = 0b10;
+    private static final int FLAGS_PER_SLOT = 2;
+    static final int PROCESSED_MESSAGE_IDS = 32;
+
     @Id
     private String id;
-    private Map<String, Player> players;
+    @ToString.Exclude
+    @AccessType(AccessType.Type.PROPERTY)
+    private List<Player> players;
     private String ownerId;
     private Boolean started;
+    private List<OutboxEvent> outbox;
+    private Instant lastActivityAt;
+    private Instant startedAt;
+    private List<String> processedMessageIds;
+    private Long sequence;
+
+    @Transient @ToString.Exclude @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private String firstPlayerId;
+    @Transient @ToString.Exclude @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private String secondPlayerId;
+    @Transient @ToString.Exclude @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private byte flags;
+
+    @Builder
+    private Room(String id, List<Player> players, String ownerId, Boolean started, List<OutboxEvent> outbox,
+                 Instant lastActivityAt, Instant startedAt, List<String> processedMessageIds, Long sequence) {
+        this.id = id;
+        this.ownerId = ownerId;
+        this.started = started;
+        this.outbox = outbox;
+        this.lastActivityAt = lastActivityAt;
+        this.startedAt = startedAt;
+        this.processedMessageIds = processedMessageIds;
+        this.sequence = sequence;
+        setPlayers(players);
+    }
+
+    public List<Player> getPlayers() {
+        List<Player> view = new ArrayList<>(SLOTS);
+        for (int slot = 0; slot < SLOTS; slot++) {
+            String playerId = playerAt(slot);
+            if (playerId == null) continue;
+            view.add(new Player(playerId, hasFlag(slot, READY), hasFlag(slot, FLEET_SET)));
+        }
+        return view;
+    }
 
-    void addPlayer(String player) {
-        players.put(
-                player,
-                Player.builder()
-                        .ready(false)
-                        .fleetSet(false)
-                        .build()
-        );
+    public void setPlayers(List<Player> players) {
+        firstPlayerId = null;
+        secondPlayerId = null;
+        flags = 0;
+        if (players == null) return;
+        for (Player player : players) {
+            int slot = addPlayer(player.getPlayerId());
+            if (Boolean.TRUE.equals(player.getReady())) setFlag(slot, READY);
+            if (Boolean.TRUE.equals(player.getFleetSet())) setFlag(slot, FLEET_SET);
+        }
+    }
+
+    int addPlayer(String player) {
+        int slot = firstPlayerId == null ? 0 : secondPlayerId == null ? 1 : -1;
+        if (slot < 0) throw new IllegalStateException("Room is full!");
+        if (slot == 0) firstPlayerId = player;
+        else secondPlayerId = player;
+        flags &= ~flag(slot, READY | FLEET_SET);
+        return slot;
+    }
+
+    int playerCount() {
+        return (firstPlayerId == null ? 0 : 1) + (secondPlayerId == null ? 0 : 1);
+    }
+
+    List<String> playerIds() {
+        if (firstPlayerId == null) return secondPlayerId == null ? List.of() : List.of(secondPlayerId);
+        return secondPlayerId == null ? List.of(firstPlayerId) : List.of(firstPlayerId, secondPlayerId);
     }
 
     boolean isPlayerInTheRoom(String playerId) {
-        return players.containsKey(playerId);
+        return slotOf(playerId) >= 0;
     }
 
     boolean isPlayerAnOwner(String playerId) {
         return ownerId.equals(playerId);
     }
 
+    boolean hasStarted() {
+        return Boolean.TRUE.equals(started);
+    }
+
+    void touch(Instant now) {
+        lastActivityAt = now;
+    }
+
+    void start(Instant now) {
+        started = true;
+        startedAt = now;
+        lastActivityAt = now;
+    }
+
+    void markProcessed(String messageId) {
+        if (messageId == null) return;
+        if (processedMessageIds == null) processedMessageIds = new ArrayList<>();
+        processedMessageIds.add(messageId);
+        if (processedMessageIds.size() > PROCESSED_MESSAGE_IDS) processedMessageIds.remove(0);
+    }
+
+    long lastSequence() {
+        return sequence == null ? 0 : sequence;
+    }
+
     boolean areAllFleetsSet() {
-        return players.values().stream()
-                .allMatch(Player::getFleetSet);
+        int mask = mask(FLEET_SET);
+        return (flags & mask) == mask;
     }
 
     boolean isPlayerFleetSet(String playerId) {
-        return players.get(playerId)
-                .getFleetSet();
+        return hasFlag(requireSlot(playerId), FLEET_SET);
     }
 
     void markPlayerFleetSet(String playerId) {
-        players.get(playerId).setFleetSet(true);
+        setFlag(requireSlot(playerId), FLEET_SET);
     }
 
     void unmarkFleetSets() {
-        players.values().forEach(p -> {
-            p.setFleetSet(false);
-            p.setReady(false);
-        });
+        flags = 0;
+    }
+
+    boolean isPlayerReady(String playerId) {
+        return hasFlag(requireSlot(playerId), READY);
     }
 
     boolean areAllPlayersReady() {
-        return players.values().stream()
-                .allMatch(Player::getReady);
+        int mask = mask(READY);
+        return (flags & mask) == mask;
     }
 
     boolean changePlayerReadiness(String playerId) {
-        Player player = players.get(playerId);
-        Boolean ready = player.getReady();
-        player.setReady(!ready);
+        int slot = requireSlot(playerId);
+        boolean ready = hasFlag(slot, READY);
+        flags ^= flag(slot, READY);
         return ready;
     }
 
+    Room snapshot() {
+        Room copy = new Room();
+        copy.id = id;
+        copy.ownerId = ownerId;
+        copy.started = started;
+        copy.outbox = new ArrayList<>();
+        copy.lastActivityAt = lastActivityAt;
+        copy.startedAt = startedAt;
+        copy.processedMessageIds = processedMessageIds == null ? null : new ArrayList<>(processedMessageIds);
+        copy.sequence = sequence;
+        copy.firstPlayerId = firstPlayerId;
+        copy.secondPlayerId = secondPlayerId;
+        copy.flags = flags;
+        return copy;
+    }
+
+    @ToString.Include(name = "players")
+    private String describePlayers() {
+        return getPlayers().toString();
+    }
+
+    private int slotOf(String playerId) {
+        if (playerId == null) return -1;
+        if (playerId.equals(firstPlayerId)) return 0;
+        if (playerId.equals(secondPlayerId)) return 1;
+        return -1;
+    }
+
+    private int requireSlot(String playerId) {
+        int slot = slotOf(playerId);
+        if (slot < 0) throw new IllegalStateException("Player is not in the game!");
+        return slot;
+    }
+
+    private String playerAt(int slot) {
+        return slot == 0 ? firstPlayerId : secondPlayerId;
+    }
+
+    private int mask(int flag) {
+        return (firstPlayerId == null ? 0 : flag(0, flag)) | (secondPlayerId == null ? 0 : flag(1, flag));
+    }
+
+    private static int flag(int slot, int flag) {
+        return flag << (slot * FLAGS_PER_SLOT);
+    }
+
+    private boolean hasFlag(int slot, int flag) {
+        return (flags & flag(slot, flag)) != 0;
+    }
+
+    private void setFlag(int slot, int flag) {
+        flags |= flag(slot, flag);
+    }
 }
@@ -0,0 +1,8 @@
+package com.github.harboat.rooms;
+
+import com.github.harboat.clients.notification.EventType;
+
+import java.util.List;
+
+public record RoomBroadcast<T>(String roomId, List<String> recipients, EventType type, T body) {
+}
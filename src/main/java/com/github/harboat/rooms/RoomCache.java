@@ -0,0 +1,230 @@
+package com.github.harboat.rooms;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@Component
+public class RoomCache {
+
+    private final RoomRepository repository;
+    private final MongoOperations mongoOperations;
+    private final boolean writeBehind;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final int flushBatchSize;
+
+    private final Map<String, CachedRoom> rooms;
+    private final Map<String, Room> pending = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public RoomCache(
+            RoomRepository repository,
+            MongoOperations mongoOperations,
+            @Value("${rooms.cache.write-behind}") boolean writeBehind,
+            @Value("${rooms.cache.max-size}") int maxSize,
+            @Value("${rooms.cache.ttl}") Duration ttl,
+            @Value("${rooms.cache.flush-batch-size}") int flushBatchSize
+    ) {
+        this.repository = repository;
+        this.mongoOperations = mongoOperations;
+        this.writeBehind = writeBehind;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttl.toMillis();
+        this.flushBatchSize = flushBatchSize;
+        this.rooms = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedRoom> eldest) {
+                return size() > RoomCache.this.maxSize;
+            }
+        };
+    }
+
+    public Optional<Room> findById(String roomId) {
+        long now = System.currentTimeMillis();
+        synchronized (rooms) {
+            CachedRoom cached = rooms.get(roomId);
+            if (cached != null && !cached.isExpired(now, ttlMillis)) {
+                cached.touch(now);
+                return Optional.of(cached.room);
+            }
+        }
+        Room snapshot = pending.get(roomId);
+        Optional<Room> room = snapshot != null
+                ? Optional.of(snapshot.snapshot())
+                : repository.findById(roomId);
+        room.ifPresent(r -> put(r, now));
+        return room;
+    }
+
+    public Optional<Room> findActiveByPlayer(String playerId) {
+        return repository.findFirstByPlayersPlayerIdAndStartedFalse(playerId)
+                .flatMap(stored -> findById(stored.getId()))
+                .filter(room -> room.isPlayerInTheRoom(playerId) && !room.hasStarted());
+    }
+
+    public Room create(Room room) {
+        Room saved = repository.save(room);
+        put(saved, System.currentTimeMillis());
+        return saved;
+    }
+
+    public void save(Room room) {
+        save(room, List.of());
+    }
+
+    public void save(Room room, List<OutboxEvent> events) {
+        put(room, System.currentTimeMillis());
+        Room snapshot = room.snapshot();
+        snapshot.getOutbox().addAll(events);
+        pending.merge(room.getId(), snapshot, (older, newer) -> {
+            List<OutboxEvent> outbox = new ArrayList<>(older.getOutbox());
+            outbox.addAll(newer.getOutbox());
+            newer.setOutbox(outbox);
+            return newer;
+        });
+        if (!writeBehind) flush(room.getId());
+    }
+
+    public void flush(String roomId) {
+        flushLock.lock();
+        try {
+            Room snapshot = pending.get(roomId);
+            if (snapshot == null) return;
+            mongoOperations.upsert(byId(roomId), toUpdate(snapshot), Room.class);
+            written(snapshot);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rooms.cache.flush-interval}")
+    public void flushPending() {
+        evictExpired();
+        flushLock.lock();
+        try {
+            List<Room> batch = new ArrayList<>(flushBatchSize);
+            for (Room snapshot : pending.values()) {
+                batch.add(snapshot);
+                if (batch.size() == flushBatchSize) {
+                    writeBatch(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) writeBatch(batch);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushAll() {
+        flushPending();
+    }
+
+    private void writeBatch(List<Room> batch) {
+        BulkOperations bulk = mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Room.class);
+        batch.forEach(room -> bulk.upsert(byId(room.getId()), toUpdate(room)));
+        bulk.execute();
+        batch.forEach(this::written);
+    }
+
+    private void written(Room snapshot) {
+        pending.computeIfPresent(snapshot.getId(), (id, current) -> {
+            if (current == snapshot) return null;
+            current.getOutbox().removeAll(snapshot.getOutbox());
+            return current;
+        });
+    }
+
+    private static Query byId(String roomId) {
+        return query(where("_id").is(roomId));
+    }
+
+    private static Update toUpdate(Room room) {
+        Update update = new Update()
+                .set("players", room.getPlayers())
+                .set("ownerId", room.getOwnerId())
+                .set("started", room.getStarted())
+                .set("lastActivityAt", room.getLastActivityAt())
+                .set("startedAt", room.getStartedAt());
+        if (room.getProcessedMessageIds() != null) update.set("processedMessageIds", room.getProcessedMessageIds());
+        if (!room.getOutbox().isEmpty()) update.push("outbox").each(room.getOutbox().toArray());
+        return update;
+    }
+
+    public void evict(String roomId) {
+        synchronized (rooms) {
+            rooms.remove(roomId);
+        }
+    }
+
+    public void evictActiveByPlayer(String playerId) {
+        repository.findFirstByPlayersPlayerIdAndStartedFalse(playerId).ifPresent(room -> evict(room.getId()));
+    }
+
+    public boolean holds(String roomId) {
+        if (pending.containsKey(roomId)) return true;
+        synchronized (rooms) {
+            return rooms.containsKey(roomId);
+        }
+    }
+
+    int size() {
+        synchronized (rooms) {
+            return rooms.size();
+        }
+    }
+
+    int pendingWrites() {
+        return pending.size();
+    }
+
+    private void put(Room room, long now) {
+        synchronized (rooms) {
+            rooms.put(room.getId(), new CachedRoom(room, now));
+        }
+    }
+
+    private void evictExpired() {
+        long now = System.currentTimeMillis();
+        synchronized (rooms) {
+            rooms.values().removeIf(cached -> cached.isExpired(now, ttlMillis));
+        }
+    }
+
+    private static final class CachedRoom {
+        private final Room room;
+        private long lastAccess;
+
+        private CachedRoom(Room room, long lastAccess) {
+            this.room = room;
+            this.lastAccess = lastAccess;
+        }
+
+        private void touch(long now) {
+            lastAccess = now;
+        }
+
+        private boolean isExpired(long now, long ttlMillis) {
+            return now - lastAccess > ttlMillis;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.github.harboat.rooms;
+
+import com.github.harboat.clients.notification.EventType;
+import com.github.harboat.clients.notification.NotificationRequest;
+import com.github.harboat.clients.rooms.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.AllArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@AllArgsConstructor
+public class RoomCommandHandler {
+
+    private RoomService service;
+    private NotificationProducer notificationProducer;
+    private MeterRegistry meterRegistry;
+    private MessageDeduplicator deduplicator;
+    private RoomRepository repository;
+    private UnknownRooms unknownRooms;
+    private ReadinessCoalescer coalescer;
+    private RoomLanes lanes;
+
+    public Object resolve(Object command, String messageId, boolean redelivered) {
+        if (command instanceof QuickRoomJoin quickRoomJoin && !isDuplicate(messageId, redelivered))
+            return service.resolveQuickJoin(quickRoomJoin);
+        return command;
+    }
+
+    public void handle(Object command, String messageId, boolean redelivered) {
+        if (isDuplicate(messageId, redelivered)) {
+            log.info("Skipping already processed message {} ({})", messageId, command);
+            meterRegistry.counter("rooms.commands.duplicates", "type", command.getClass().getSimpleName()).increment();
+            return;
+        }
+        MessageContext.run(messageId, () -> handle(command));
+        deduplicator.processed(messageId);
+    }
+
+    public void handle(Object command) {
+        if (coalescer.isEnabled()) {
+            if (command instanceof ChangePlayerReadiness playerReadiness) {
+                coalescer.offer(playerReadiness, MessageContext.currentMessageId());
+                return;
+            }
+            String roomId = roomId(command);
+            if (roomId != null) {
+                synchronized (coalescer.lockFor(roomId)) {
+                    flushReadiness(roomId);
+                    dispatch(command);
+                }
+                return;
+            }
+        }
+        dispatch(command);
+    }
+
+    public void flushReadiness(String roomId) {
+        synchronized (coalescer.lockFor(roomId)) {
+            for (ReadinessCoalescer.Toggle toggle : coalescer.drain(roomId)) {
+                ChangePlayerReadiness playerReadiness = toggle.command();
+                MessageContext.run(toggle.messageId(), () ->
+                        handle(playerReadiness, playerReadiness.playerId(), () -> service.changeReady(playerReadiness)));
+            }
+        }
+    }
+
+    public boolean hasPendingReadiness(String roomId) {
+        return coalescer.isPending(roomId);
+    }
+
+    @Scheduled(fixedDelayString = "${rooms.readiness.flush-interval}")
+    public void flushDueReadiness() {
+        coalescer.dueRooms().forEach(roomId -> lanes.submit(roomId, () -> flushReadiness(roomId)));
+    }
+
+    private void dispatch(Object command) {
+        if (command instanceof RoomCreate roomCreate) {
+            handle(roomCreate, roomCreate.playerId(), () -> service.create(roomCreate));
+        } else if (command instanceof RoomPlayerJoin roomPlayerJoin) {
+            handle(roomPlayerJoin, roomPlayerJoin.playerId(), () -> service.joinPlayer(roomPlayerJoin));
+        } else if (command instanceof ChangePlayerReadiness playerReadiness) {
+            handle(playerReadiness, playerReadiness.playerId(), () -> service.changeReady(playerReadiness));
+        } else if (command instanceof MarkStart markStart) {
+            handle(markStart, markStart.playerId(), () -> service.markStart(markStart));
+        } else if (command instanceof MarkFleetSet markFleetSet) {
+            handle(markFleetSet, markFleetSet.playerId(), () -> service.markFleetSet(markFleetSet));
+        } else if (command instanceof UnmarkFleetSet unmarkFleetSet) {
+            handle(unmarkFleetSet, unmarkFleetSet.playerId(), () -> service.unmarkFleet(unmarkFleetSet));
+        } else {
+            log.warn("Dropping unsupported rooms message {}", command);
+        }
+    }
+
+    public void rateLimited(Object command, PlayerRateLimiter.Policy policy) {
+        log.debug("Rate limiting {}", command);
+        dropped(command, "rate-limited");
+        if (policy == PlayerRateLimiter.Policy.REJECT) {
+            notificationProducer.sendNotification(
+                    new NotificationRequest<>(playerId(command), EventType.EXCEPTION, RoomError.TOO_MANY_REQUESTS.notice())
+            );
+        }
+    }
+
+    static String roomKey(Object command) {
+        if (command instanceof RoomCreate roomCreate) return roomCreate.playerId();
+        if (command instanceof QuickRoomJoin quickRoomJoin) return quickRoomJoin.playerId();
+        String roomId = roomId(command);
+        return roomId == null ? "" : roomId;
+    }
+
+    static String roomId(Object command) {
+        if (command instanceof RoomPlayerJoin roomPlayerJoin) return roomPlayerJoin.roomId();
+        if (command instanceof ChangePlayerReadiness playerReadiness) return playerReadiness.roomId();
+        if (command instanceof MarkStart markStart) return markStart.roomId();
+        if (command instanceof MarkFleetSet markFleetSet) return markFleetSet.roomId();
+        if (command instanceof UnmarkFleetSet unmarkFleetSet) return unmarkFleetSet.roomId();
+        return null;
+    }
+
+    static String playerId(Object command) {
+        if (command instanceof RoomCreate roomCreate) return roomCreate.playerId();
+        if (command instanceof QuickRoomJoin quickRoomJoin) return quickRoomJoin.playerId();
+        if (command instanceof RoomPlayerJoin roomPlayerJoin) return roomPlayerJoin.playerId();
+        if (command instanceof ChangePlayerReadiness playerReadiness) return playerReadiness.playerId();
+        if (command instanceof MarkStart markStart) return markStart.playerId();
+        if (command instanceof MarkFleetSet markFleetSet) return markFleetSet.playerId();
+        if (command instanceof UnmarkFleetSet unmarkFleetSet) return unmarkFleetSet.playerId();
+        return null;
+    }
+
+    private boolean isDuplicate(String messageId, boolean redelivered) {
+        return switch (deduplicator.check(messageId, redelivered)) {
+            case NEW -> false;
+            case DUPLICATE -> true;
+            case UNKNOWN -> repository.existsByProcessedMessageIds(messageId);
+        };
+    }
+
+    private void handle(Object command, String playerId, Runnable action) {
+        String roomId = roomId(command);
+        if (roomId != null && unknownRooms.contains(roomId)) {
+            log.debug("Dropping {} for unknown room", command);
+            dropped(command, "unknown-room");
+            return;
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "ok";
+        try {
+            action.run();
+        } catch (RoomRejection e) {
+            outcome = e.code().outcome();
+            meterRegistry.counter("rooms.commands.rejections", "code", e.code().name()).increment();
+            if (e.code().isNotFound() && roomId != null) unknownRooms.remember(roomId);
+            notificationProducer.sendNotification(
+                    new NotificationRequest<>(playerId, EventType.EXCEPTION, e.code().notice())
+            );
+        } catch (DuplicateMessage e) {
+            outcome = "duplicate";
+            log.info("Skipping already applied message {} ({})", MessageContext.currentMessageId(), command);
+            meterRegistry.counter("rooms.commands.duplicates", "type", command.getClass().getSimpleName()).increment();
+        } catch (RuntimeException e) {
+            outcome = "error";
+            throw e;
+        } finally {
+            sample.stop(meterRegistry.timer("rooms.commands",
+                    "type", command.getClass().getSimpleName(),
+                    "outcome", outcome));
+        }
+    }
+
+    private void dropped(Object command, String reason) {
+        meterRegistry.counter("rooms.commands.dropped",
+                "type", command.getClass().getSimpleName(),
+                "reason", reason).increment();
+    }
+}
@@ -0,0 +1,60 @@
+package com.github.harboat.rooms;
+
+public enum RoomError {
+
+    ALREADY_IN_A_ROOM(400, "You are already in a room!"),
+    ALREADY_IN_THIS_ROOM(400, "You are already in this room!"),
+    ROOM_FULL(400, "Room is full!"),
+    GAME_ALREADY_STARTED(400, "Game has already started!"),
+    PLAYER_NOT_IN_GAME(400, "Player is not in the game!"),
+    FLEET_NOT_SET(400, "Player fleet is not set yet, you can't change readiness!"),
+    NOT_AN_OWNER(400, "You are not an owner of this game!"),
+    SOLO_GAME(400, "You can't play solo!"),
+    PLAYERS_NOT_READY(400, "Not all players are ready!"),
+    FLEETS_NOT_SET(400, "Not all players have fleet set!"),
+    ROOM_CHANGED(400, "Room has changed, try again!"),
+    TOO_MANY_REQUESTS(429, "Too many requests!"),
+    ROOM_NOT_FOUND(404, "Couldn't find the room!"),
+    GAME_NOT_FOUND(404, "Couldn't find the game!"),
+    ROOM_EXPIRED(404, "Room has expired!");
+
+    private final int status;
+    private final String message;
+    private final RoomRejection rejection;
+    private final RejectionNotice notice;
+
+    RoomError(int status, String message) {
+        this.status = status;
+        this.message = message;
+        this.rejection = new RoomRejection(this, message);
+        this.notice = new RejectionNotice(this, status, message);
+    }
+
+    public int status() {
+        return status;
+    }
+
+    public String message() {
+        return message;
+    }
+
+    public boolean isNotFound() {
+        return status == 404;
+    }
+
+    public String outcome() {
+        return switch (status) {
+            case 404 -> "not_found";
+            case 429 -> "too_many_requests";
+            default -> "bad_request";
+        };
+    }
+
+    public RoomRejection reject() {
+        return rejection;
+    }
+
+    public RejectionNotice notice() {
+        return notice;
+    }
+}
@@ -0,0 +1,57 @@
+package com.github.harboat.rooms;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+@Document("roomEvents")
+@AllArgsConstructor @NoArgsConstructor
+@Getter @Setter @ToString
+@Builder
+public class RoomEvent {
+
+    enum Type {
+        CREATED(true),
+        PLAYER_JOINED(true),
+        FLEET_SET(false),
+        FLEETS_UNSET(false),
+        READINESS_CHANGED(false),
+        STARTED(true);
+
+        private final boolean structural;
+
+        Type(boolean structural) {
+            this.structural = structural;
+        }
+
+        boolean isStructural() {
+            return structural;
+        }
+    }
+
+    @Id
+    private String id;
+    private String roomId;
+    private long sequence;
+    private Type type;
+    private String playerId;
+    private Instant at;
+    private String messageId;
+
+    void applyTo(Room room) {
+        switch (type) {
+            case CREATED -> {
+            }
+            case PLAYER_JOINED -> room.addPlayer(playerId);
+            case FLEET_SET -> room.markPlayerFleetSet(playerId);
+            case FLEETS_UNSET -> room.unmarkFleetSets();
+            case READINESS_CHANGED -> room.changePlayerReadiness(playerId);
+            case STARTED -> room.start(at);
+        }
+        room.touch(at);
+        room.markProcessed(messageId);
+        room.setSequence(sequence);
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.harboat.rooms;
+
+import com.github.harboat.clients.configuration.ConfigurationCreate;
+import com.github.harboat.clients.configuration.ConfigurationPlayerJoin;
+import com.github.harboat.clients.configuration.CreateGame;
+import com.github.harboat.clients.rooms.RoomCreated;
+import com.github.harboat.clients.rooms.RoomGameStart;
+import com.github.harboat.clients.rooms.RoomPlayerJoined;
+import lombok.AllArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+@Component
+@AllArgsConstructor
+public class RoomEventDispatcher {
+
+    private CoreQueueProducer coreQueueProducer;
+    private ConfigQueueProducer configQueueProducer;
+
+    public CompletableFuture<Void> dispatch(Object event) {
+        if (event instanceof RoomCreated roomCreated) {
+            return coreQueueProducer.sendRoom(roomCreated);
+        } else if (event instanceof RoomGameStart roomGameStart) {
+            return coreQueueProducer.sendStart(roomGameStart);
+        } else if (event instanceof RoomPlayerJoined roomPlayerJoined) {
+            return coreQueueProducer.sendPlayerJoin(roomPlayerJoined);
+        } else if (event instanceof ConfigurationCreate configurationCreate) {
+            return configQueueProducer.sendCreate(configurationCreate);
+        } else if (event instanceof CreateGame createGame) {
+            return configQueueProducer.sendCreateGame(createGame);
+        } else if (event instanceof ConfigurationPlayerJoin configurationPlayerJoin) {
+            return configQueueProducer.sendPlayerJoin(configurationPlayerJoin);
+        }
+        throw new IllegalArgumentException("Unsupported room event " + event);
+    }
+}
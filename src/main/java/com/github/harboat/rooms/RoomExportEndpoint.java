@@ -0,0 +1,79 @@
+package com.github.harboat.rooms;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.web.annotation.RestControllerEndpoint;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+@Slf4j
+@Component
+@RestControllerEndpoint(id = "roomexport")
+public class RoomExportEndpoint {
+
+    static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final RoomExporter exporter;
+    private final TaskExecutor executor;
+    private final Duration timeout;
+
+    public RoomExportEndpoint(
+            RoomExporter exporter,
+            @Qualifier("applicationTaskExecutor") TaskExecutor executor,
+            @Value("${rooms.export.timeout}") Duration timeout
+    ) {
+        this.exporter = exporter;
+        this.executor = executor;
+        this.timeout = timeout;
+    }
+
+    @GetMapping(produces = "application/x-ndjson")
+    public ResponseBodyEmitter export(
+            @RequestParam(required = false) Boolean started,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant createdAfter,
+            @RequestParam(required = false) String after,
+            @RequestParam(required = false) List<String> fields,
+            @RequestParam(required = false) Integer batchSize,
+            @RequestParam(required = false) Integer limit
+    ) {
+        RoomExportRequest request = new RoomExportRequest(started, createdAfter, after, fields, batchSize, limit);
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(timeout.toMillis());
+        executor.execute(() -> {
+            try {
+                exporter.export(request, stream(emitter));
+                emitter.complete();
+            } catch (IOException | RuntimeException e) {
+                log.warn("Room export {} failed", request, e);
+                emitter.completeWithError(e);
+            }
+        });
+        return emitter;
+    }
+
+    private static OutputStream stream(ResponseBodyEmitter emitter) {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                emitter.send(Arrays.copyOfRange(bytes, offset, offset + length), NDJSON);
+            }
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package com.github.harboat.rooms;
+
+import java.time.Instant;
+import java.util.List;
+
+public record RoomExportRequest(
+        Boolean started,
+        Instant createdAfter,
+        String after,
+        List<String> fields,
+        Integer batchSize,
+        Integer limit
+) {
+}
@@ -0,0 +1,99 @@
+package com.github.harboat.rooms;
+
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.json.JsonMode;
+import org.bson.json.JsonWriterSettings;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+@Component
+public class RoomExporter {
+
+    private static final JsonWriterSettings JSON = JsonWriterSettings.builder()
+            .outputMode(JsonMode.RELAXED)
+            .objectIdConverter((id, writer) -> writer.writeString(id.toHexString()))
+            .build();
+    private static final List<String> INTERNAL_FIELDS = List.of("processedMessageIds", "outbox");
+
+    private final MongoOperations mongoOperations;
+    private final int defaultBatchSize;
+    private final int maxBatchSize;
+    private final int maxLimit;
+
+    public RoomExporter(
+            MongoOperations mongoOperations,
+            @Value("${rooms.export.batch-size}") int defaultBatchSize,
+            @Value("${rooms.export.max-batch-size}") int maxBatchSize,
+            @Value("${rooms.export.max-limit}") int maxLimit
+    ) {
+        this.mongoOperations = mongoOperations;
+        this.defaultBatchSize = defaultBatchSize;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLimit = maxLimit;
+    }
+
+    public long export(RoomExportRequest request, OutputStream output) throws IOException {
+        int batchSize = request.batchSize() == null ? defaultBatchSize : Math.min(Math.max(1, request.batchSize()), maxBatchSize);
+        var rooms = mongoOperations.getCollection(mongoOperations.getCollectionName(Room.class))
+                .find(filter(request))
+                .sort(Sorts.ascending("_id"))
+                .batchSize(batchSize)
+                .projection(projection(request.fields()))
+                .limit(request.limit() == null ? maxLimit : Math.min(Math.max(1, request.limit()), maxLimit));
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        long exported = 0;
+        try (MongoCursor<Document> cursor = rooms.iterator()) {
+            while (cursor.hasNext()) {
+                writer.write(cursor.next().toJson(JSON));
+                writer.write('\n');
+                if (++exported % batchSize == 0) writer.flush();
+            }
+        }
+        writer.flush();
+        return exported;
+    }
+
+    static Bson filter(RoomExportRequest request) {
+        List<Bson> filters = new ArrayList<>();
+        if (request.started() != null) filters.add(Filters.eq("started", request.started()));
+        if (request.createdAfter() != null) filters.add(Filters.gte("_id", createdAt(request.createdAfter())));
+        if (request.after() != null) filters.add(Filters.gt("_id", id(request.after())));
+        if (filters.isEmpty()) return new Document();
+        return filters.size() == 1 ? filters.get(0) : Filters.and(filters);
+    }
+
+    static Bson projection(List<String> fields) {
+        List<String> requested = fields == null ? List.of() : fields.stream().filter(field -> !isInternal(field)).toList();
+        return requested.isEmpty() ? Projections.exclude(INTERNAL_FIELDS) : Projections.include(requested);
+    }
+
+    private static boolean isInternal(String field) {
+        return INTERNAL_FIELDS.stream().anyMatch(internal -> field.equals(internal) || field.startsWith(internal + "."));
+    }
+
+    private static ObjectId createdAt(Instant instant) {
+        return new ObjectId(String.format("%08x%016x", instant.getEpochSecond(), 0));
+    }
+
+    private static Object id(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+}
@@ -0,0 +1,119 @@
+package com.github.harboat.rooms;
+
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Slf4j
+@Component
+public class RoomLanes {
+
+    private final boolean enabled;
+    private final ThreadPoolExecutor[] lanes;
+    private final Timer queueWait;
+
+    public RoomLanes(
+            @Value("${rooms.lanes.enabled}") boolean enabled,
+            @Value("${rooms.lanes.count}") int count,
+            @Value("${rooms.lanes.queue-capacity}") int queueCapacity,
+            MeterRegistry meterRegistry
+    ) {
+        this.enabled = enabled;
+        this.queueWait = meterRegistry.timer("rooms.lanes.wait");
+        int size = count > 0 ? count : Runtime.getRuntime().availableProcessors();
+        this.lanes = new ThreadPoolExecutor[enabled ? size : 0];
+        for (int i = 0; i < lanes.length; i++) {
+            String name = "room-lane-" + i;
+            lanes[i] = new ThreadPoolExecutor(
+                    1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    task -> new Thread(task, name),
+                    RoomLanes::waitForSpace
+            );
+        }
+        Gauge.builder("rooms.lanes.queued", this, RoomLanes::queued).register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void execute(String roomId, Runnable task, Channel channel, long deliveryTag) {
+        if (!enabled) {
+            task.run();
+            return;
+        }
+        long queuedAt = System.nanoTime();
+        laneFor(roomId).execute(() -> {
+            queueWait.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+            try {
+                task.run();
+                channel.basicAck(deliveryTag, false);
+            } catch (RuntimeException e) {
+                log.error("Processing of message {} failed, requeueing", deliveryTag, e);
+                nack(channel, deliveryTag);
+            } catch (IOException e) {
+                log.error("Couldn't acknowledge message {}", deliveryTag, e);
+            }
+        });
+    }
+
+    public void submit(String roomId, Runnable task) {
+        if (!enabled) {
+            task.run();
+            return;
+        }
+        laneFor(roomId).execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Background task for room {} failed", roomId, e);
+            }
+        });
+    }
+
+    int queued() {
+        int queued = 0;
+        for (ThreadPoolExecutor lane : lanes) queued += lane.getQueue().size();
+        return queued;
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ThreadPoolExecutor lane : lanes) lane.shutdown();
+        for (ThreadPoolExecutor lane : lanes) lane.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private ThreadPoolExecutor laneFor(String roomId) {
+        return lanes[Math.floorMod(roomId.hashCode(), lanes.length)];
+    }
+
+    private static void nack(Channel channel, long deliveryTag) {
+        try {
+            channel.basicNack(deliveryTag, false, true);
+        } catch (IOException e) {
+            log.error("Couldn't reject message {}", deliveryTag, e);
+        }
+    }
+
+    private static void waitForSpace(Runnable task, ThreadPoolExecutor lane) {
+        if (lane.isShutdown()) throw new RejectedExecutionException("Room lane is shut down");
+        try {
+            lane.getQueue().put(task);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for room lane", e);
+        }
+    }
+}
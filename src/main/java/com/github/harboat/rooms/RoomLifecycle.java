@@ -0,0 +1,133 @@
+package com.github.harboat.rooms;
+
+import com.github.harboat.clients.notification.EventType;
+import com.mongodb.MongoServerException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@Slf4j
+@Component
+public class RoomLifecycle {
+
+    private static final String LOBBY_TTL_INDEX = "lobby_ttl";
+    private static final String GAME_TTL_INDEX = "game_ttl";
+    private static final int INDEX_OPTIONS_CONFLICT = 85;
+
+    private final MongoOperations mongoOperations;
+    private final RoomCache cache;
+    private final OpenRooms openRooms;
+    private final NotificationProducer notificationProducer;
+    private final Duration lobbyTimeout;
+    private final Duration gameTimeout;
+    private final TimerWheel<String, TrackedRoom> wheel;
+
+    public RoomLifecycle(
+            MongoOperations mongoOperations,
+            RoomCache cache,
+            OpenRooms openRooms,
+            NotificationProducer notificationProducer,
+            @Value("${rooms.lifecycle.lobby-timeout}") Duration lobbyTimeout,
+            @Value("${rooms.lifecycle.game-timeout}") Duration gameTimeout,
+            @Value("${rooms.lifecycle.tick}") long tickMillis,
+            @Value("${rooms.lifecycle.wheel-size}") int wheelSize
+    ) {
+        this.mongoOperations = mongoOperations;
+        this.cache = cache;
+        this.openRooms = openRooms;
+        this.notificationProducer = notificationProducer;
+        this.lobbyTimeout = lobbyTimeout;
+        this.gameTimeout = gameTimeout;
+        this.wheel = new TimerWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+    }
+
+    @PostConstruct
+    public void ensureIndexes() {
+        ensureIndex(new Index()
+                .on("lastActivityAt", Sort.Direction.ASC)
+                .named(LOBBY_TTL_INDEX)
+                .expire(lobbyTimeout)
+                .partial(PartialIndexFilter.of(where("started").is(false))));
+        ensureIndex(new Index()
+                .on("startedAt", Sort.Direction.ASC)
+                .named(GAME_TTL_INDEX)
+                .expire(gameTimeout));
+    }
+
+    public void track(Room room) {
+        Duration timeout = room.hasStarted() ? gameTimeout : lobbyTimeout;
+        wheel.schedule(
+                room.getId(),
+                new TrackedRoom(room.playerIds(), room.hasStarted()),
+                System.currentTimeMillis() + timeout.toMillis()
+        );
+    }
+
+    public boolean isExpired(Room room) {
+        return !room.hasStarted()
+                && room.getLastActivityAt() != null
+                && room.getLastActivityAt().isBefore(Instant.now().minus(lobbyTimeout));
+    }
+
+    @Scheduled(fixedDelayString = "${rooms.lifecycle.tick}")
+    public void expire() {
+        wheel.advance(System.currentTimeMillis(), this::expire);
+    }
+
+    int tracked() {
+        return wheel.size();
+    }
+
+    private void expire(String roomId, TrackedRoom room) {
+        cache.evict(roomId);
+        if (room.started()) return;
+        if (!isExpiredInStore(roomId)) {
+            log.debug("Lobby {} was touched elsewhere, not expiring it", roomId);
+            return;
+        }
+        openRooms.close(roomId);
+        log.debug("Lobby {} expired after {} of inactivity", roomId, lobbyTimeout);
+        notificationProducer.broadcast(roomId, room.playerIds(), EventType.EXCEPTION, RoomError.ROOM_EXPIRED.notice());
+    }
+
+    private boolean isExpiredInStore(String roomId) {
+        Instant cutoff = Instant.now().minus(lobbyTimeout);
+        boolean idle = mongoOperations.exists(
+                query(where("_id").is(roomId).and("started").is(false).and("lastActivityAt").lt(cutoff)),
+                Room.class
+        );
+        return idle || !mongoOperations.exists(query(where("_id").is(roomId)), Room.class);
+    }
+
+    private void ensureIndex(Index index) {
+        IndexOperations indexOps = mongoOperations.indexOps(Room.class);
+        try {
+            indexOps.ensureIndex(index);
+        } catch (DataAccessException e) {
+            if (!(e.getMostSpecificCause() instanceof MongoServerException server) || server.getCode() != INDEX_OPTIONS_CONFLICT)
+                throw e;
+            String name = (String) index.getIndexOptions().get("name");
+            log.info("Recreating index {} with new expiry", name);
+            indexOps.dropIndex(name);
+            indexOps.ensureIndex(index);
+        }
+    }
+
+    private record TrackedRoom(List<String> playerIds, boolean started) {
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.harboat.rooms;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class RoomMetrics {
+
+    private final MeterRegistry meterRegistry;
+    private final MongoOperations mongoOperations;
+    private final Leadership leadership;
+    private final AtomicLong waiting = new AtomicLong();
+    private final AtomicLong full = new AtomicLong();
+    private final AtomicLong started = new AtomicLong();
+    private final List<Gauge> stateGauges = new ArrayList<>(3);
+
+    public RoomMetrics(
+            MeterRegistry meterRegistry,
+            MongoOperations mongoOperations,
+            Leadership leadership,
+            RoomCache cache,
+            OpenRooms openRooms,
+            RoomLifecycle lifecycle
+    ) {
+        this.meterRegistry = meterRegistry;
+        this.mongoOperations = mongoOperations;
+        this.leadership = leadership;
+        Gauge.builder("rooms.cache.size", cache, RoomCache::size).register(meterRegistry);
+        Gauge.builder("rooms.cache.pending", cache, RoomCache::pendingWrites).register(meterRegistry);
+        Gauge.builder("rooms.open", openRooms, OpenRooms::size).register(meterRegistry);
+        Gauge.builder("rooms.tracked", lifecycle, RoomLifecycle::tracked).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${rooms.metrics.state-refresh-interval}")
+    public synchronized void refreshStates() {
+        if (!leadership.isLeader()) {
+            stateGauges.forEach(meterRegistry::remove);
+            stateGauges.clear();
+            return;
+        }
+        long waitingRooms = 0;
+        long fullRooms = 0;
+        long startedRooms = 0;
+        for (Document state : mongoOperations.aggregate(Aggregation.newAggregation(groupByState()), Room.class, Document.class)) {
+            Document id = state.get("_id", Document.class);
+            long count = ((Number) state.get("count")).longValue();
+            if (Boolean.TRUE.equals(id.getBoolean("started"))) startedRooms += count;
+            else if (Boolean.TRUE.equals(id.getBoolean("full"))) fullRooms += count;
+            else waitingRooms += count;
+        }
+        waiting.set(waitingRooms);
+        full.set(fullRooms);
+        started.set(startedRooms);
+        if (stateGauges.isEmpty()) {
+            stateGauges.add(stateGauge("waiting", waiting));
+            stateGauges.add(stateGauge("full", full));
+            stateGauges.add(stateGauge("started", started));
+        }
+    }
+
+    private Gauge stateGauge(String state, AtomicLong count) {
+        return Gauge.builder("rooms.state", count, AtomicLong::get)
+                .tag("state", state)
+                .register(meterRegistry);
+    }
+
+    private static AggregationOperation groupByState() {
+        Document playerCount = new Document("$size", new Document("$ifNull", List.of("$players", List.of())));
+        return context -> new Document("$group", new Document("_id", new Document("started", "$started")
+                .append("full", new Document("$gt", List.of(playerCount, 1))))
+                .append("count", new Document("$sum", 1)));
+    }
+}
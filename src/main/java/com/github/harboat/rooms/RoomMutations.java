@@ -0,0 +1,116 @@
+package com.github.harboat.rooms;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+
+import java.util.List;
+
+final class RoomMutations {
+
+    static final FindAndModifyOptions RETURN_NEW = FindAndModifyOptions.options().returnNew(true);
+
+    private static final String LAST_ACTIVITY_AT = "lastActivityAt";
+    private static final String PROCESSED_MESSAGE_IDS = "processedMessageIds";
+
+    private RoomMutations() {
+    }
+
+    record Mutation(Query query, UpdateDefinition update) {
+    }
+
+    static Mutation addPlayer(String roomId, String playerId, List<OutboxEvent> events, String messageId) {
+        Document guard = new Document("_id", roomId)
+                .append("players.playerId", new Document("$ne", playerId))
+                .append("players.1", new Document("$exists", false))
+                .append("started", new Document("$ne", true));
+        Update update = new Update().push("players", new Document("playerId", playerId)
+                .append("ready", false)
+                .append("fleetSet", false))
+                .currentDate(LAST_ACTIVITY_AT);
+        return mutation(guard, withMarker(withEvents(update, events), messageId));
+    }
+
+    static Mutation markFleetSet(String roomId, String playerId, String messageId) {
+        Update update = new Update()
+                .set("players.$.fleetSet", true)
+                .currentDate(LAST_ACTIVITY_AT);
+        return mutation(roomWithPlayer(roomId, playerId), withMarker(update, messageId));
+    }
+
+    static Mutation unmarkFleetSets(String roomId, String playerId, String messageId) {
+        Update update = new Update()
+                .set("players.$[].fleetSet", false)
+                .set("players.$[].ready", false)
+                .currentDate(LAST_ACTIVITY_AT);
+        return mutation(roomWithPlayer(roomId, playerId), withMarker(update, messageId));
+    }
+
+    static Mutation toggleReadiness(String roomId, String playerId, String messageId) {
+        Document guard = new Document("_id", roomId)
+                .append("players", new Document("$elemMatch", new Document("playerId", playerId).append("fleetSet", true)));
+        Document toggled = new Document("$map", new Document("input", "$players")
+                .append("in", new Document("$cond", List.of(
+                        new Document("$eq", List.of("$$this.playerId", playerId)),
+                        new Document("$mergeObjects", List.of("$$this", new Document("ready", new Document("$not", List.of("$$this.ready"))))),
+                        "$$this"
+                ))));
+        Document set = new Document("players", toggled).append(LAST_ACTIVITY_AT, "$$NOW");
+        if (messageId != null) {
+            set.append(PROCESSED_MESSAGE_IDS, new Document("$slice", List.of(
+                    new Document("$concatArrays", List.of(
+                            new Document("$ifNull", List.of("$" + PROCESSED_MESSAGE_IDS, List.of())),
+                            List.of(messageId)
+                    )),
+                    -Room.PROCESSED_MESSAGE_IDS
+            )));
+        }
+        return mutation(guard, pipeline(set));
+    }
+
+    static Mutation markStarted(String roomId, String playerId, List<OutboxEvent> events, String messageId) {
+        Document notReadyPlayer = new Document("$or", List.of(
+                new Document("ready", new Document("$ne", true)),
+                new Document("fleetSet", new Document("$ne", true))
+        ));
+        Document guard = roomWithPlayer(roomId, playerId)
+                .append("ownerId", playerId)
+                .append("started", new Document("$ne", true))
+                .append("players", new Document("$size", 2)
+                        .append("$not", new Document("$elemMatch", notReadyPlayer)));
+        Update update = new Update()
+                .set("started", true)
+                .currentDate("startedAt")
+                .currentDate(LAST_ACTIVITY_AT);
+        return mutation(guard, withMarker(withEvents(update, events), messageId));
+    }
+
+    private static Mutation mutation(Document guard, UpdateDefinition update) {
+        return new Mutation(new BasicQuery(guard), update);
+    }
+
+    private static Update withEvents(Update update, List<OutboxEvent> events) {
+        if (!events.isEmpty()) update.push("outbox").each(events.toArray());
+        return update;
+    }
+
+    private static Update withMarker(Update update, String messageId) {
+        if (messageId != null)
+            update.push(PROCESSED_MESSAGE_IDS).slice(-Room.PROCESSED_MESSAGE_IDS).each(messageId);
+        return update;
+    }
+
+    private static UpdateDefinition pipeline(Document set) {
+        AggregationOperation stage = context -> new Document("$set", set);
+        return AggregationUpdate.from(List.of(stage));
+    }
+
+    private static Document roomWithPlayer(String roomId, String playerId) {
+        return new Document("_id", roomId).append("players.playerId", playerId);
+    }
+}
@@ -0,0 +1,52 @@
+package com.github.harboat.rooms;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class RoomOutbox {
+
+    private final boolean enabled;
+    private final ObjectMapper objectMapper;
+
+    public RoomOutbox(@Value("${rooms.outbox.enabled}") boolean enabled, ObjectMapper objectMapper) {
+        this.enabled = enabled;
+        this.objectMapper = objectMapper;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public List<OutboxEvent> record(List<Object> events) {
+        if (!enabled) return List.of();
+        return events.stream()
+                .map(this::toOutboxEvent)
+                .toList();
+    }
+
+    public Object payloadOf(OutboxEvent event) {
+        try {
+            return objectMapper.readValue(event.getPayload(), Class.forName(event.getType()));
+        } catch (JsonProcessingException | ClassNotFoundException e) {
+            throw new IllegalStateException("Couldn't read outbox event " + event.getEventId(), e);
+        }
+    }
+
+    private OutboxEvent toOutboxEvent(Object event) {
+        try {
+            return new OutboxEvent(
+                    new ObjectId().toHexString(),
+                    event.getClass().getName(),
+                    objectMapper.writeValueAsString(event)
+            );
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Couldn't write outbox event " + event, e);
+        }
+    }
+}
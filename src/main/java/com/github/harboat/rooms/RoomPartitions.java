@@ -0,0 +1,194 @@
+package com.github.harboat.rooms;
+
+import com.github.harboat.clients.rooms.RoomCreate;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "rooms.partitions.enabled", havingValue = "true")
+public class RoomPartitions {
+
+    private final ConnectionFactory connectionFactory;
+    private final RabbitTemplate rabbitTemplate;
+    private final MessageConverter messageConverter;
+    private final RoomCommandHandler handler;
+    private final PlayerRateLimiter rateLimiter;
+    private final RoomCache cache;
+    private final DiscoveryClient discoveryClient;
+    private final Registration registration;
+    private final String exchange;
+    private final String queuePrefix;
+    private final int count;
+    private final int prefetch;
+    private final Map<Integer, SimpleMessageListenerContainer> owned = new TreeMap<>();
+    private final Set<Integer> draining = ConcurrentHashMap.newKeySet();
+    private final Map<Integer, Set<String>> cachedRooms = new ConcurrentHashMap<>();
+
+    public RoomPartitions(
+            ConnectionFactory connectionFactory,
+            RabbitTemplate rabbitTemplate,
+            MessageConverter messageConverter,
+            RoomCommandHandler handler,
+            PlayerRateLimiter rateLimiter,
+            RoomCache cache,
+            DiscoveryClient discoveryClient,
+            Registration registration,
+            @Value("${rabbitmq.exchanges.rooms-partitioned}") String exchange,
+            @Value("${rabbitmq.queues.rooms-partition-prefix}") String queuePrefix,
+            @Value("${rooms.partitions.count}") int count,
+            @Value("${rooms.partitions.prefetch}") int prefetch
+    ) {
+        this.connectionFactory = connectionFactory;
+        this.rabbitTemplate = rabbitTemplate;
+        this.messageConverter = messageConverter;
+        this.handler = handler;
+        this.rateLimiter = rateLimiter;
+        this.cache = cache;
+        this.discoveryClient = discoveryClient;
+        this.registration = registration;
+        this.exchange = exchange;
+        this.queuePrefix = queuePrefix;
+        this.count = count;
+        this.prefetch = prefetch;
+    }
+
+    static String queueName(String queuePrefix, int partition) {
+        return queuePrefix + partition;
+    }
+
+    static Set<Integer> assign(List<String> members, String self, int partitions) {
+        Set<Integer> assigned = new TreeSet<>();
+        if (!members.contains(self)) return assigned;
+        for (int partition = 0; partition < partitions; partition++) {
+            int p = partition;
+            String owner = members.stream()
+                    .max(Comparator.comparingLong(member -> weight(member, p)))
+                    .orElse(self);
+            if (owner.equals(self)) assigned.add(partition);
+        }
+        return assigned;
+    }
+
+    @RabbitListener(queues = {"${rabbitmq.queues.rooms}"})
+    public void route(Message message) {
+        Object received = messageConverter.fromMessage(message);
+        if (!(received instanceof QuickRoomJoin)) {
+            rabbitTemplate.send(exchange, RoomCommandHandler.roomKey(received), message);
+            return;
+        }
+        MessageProperties properties = message.getMessageProperties();
+        Object command = handler.resolve(received, properties.getMessageId(), Boolean.TRUE.equals(properties.getRedelivered()));
+        if (command instanceof QuickRoomJoin) {
+            log.info("Skipping already processed message {} ({})", properties.getMessageId(), command);
+            return;
+        }
+        rabbitTemplate.send(exchange, RoomCommandHandler.roomKey(command), messageConverter.toMessage(command, properties));
+    }
+
+    @Scheduled(fixedDelayString = "${rooms.partitions.rebalance-interval}")
+    public synchronized void rebalance() {
+        List<String> members = discoveryClient.getInstances(registration.getServiceId()).stream()
+                .map(ServiceInstance::getInstanceId)
+                .toList();
+        Set<Integer> assigned = assign(members, registration.getInstanceId(), count);
+        List<Integer> revoked = owned.keySet().stream().filter(p -> !assigned.contains(p)).toList();
+        if (!revoked.isEmpty()) {
+            draining.addAll(revoked);
+            revoked.forEach(partition -> owned.remove(partition).stop());
+            revoked.forEach(this::release);
+            revoked.forEach(draining::remove);
+        }
+        cachedRooms.values().forEach(roomIds -> roomIds.removeIf(roomId -> !cache.holds(roomId) && !handler.hasPendingReadiness(roomId)));
+        List<Integer> added = assigned.stream().filter(partition -> !owned.containsKey(partition)).toList();
+        added.forEach(partition -> owned.put(partition, listen(partition)));
+        if (!revoked.isEmpty() || !added.isEmpty())
+            log.info("Released partitions {}, took {}, now owning {} among {} members", revoked, added, owned.keySet(), members.size());
+    }
+
+    private void release(int partition) {
+        Set<String> roomIds = cachedRooms.remove(partition);
+        if (roomIds == null) return;
+        roomIds.forEach(roomId -> {
+            handler.flushReadiness(roomId);
+            cache.flush(roomId);
+            cache.evict(roomId);
+        });
+    }
+
+    synchronized Set<Integer> owned() {
+        return Set.copyOf(owned.keySet());
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        owned.values().forEach(SimpleMessageListenerContainer::stop);
+        owned.clear();
+    }
+
+    private SimpleMessageListenerContainer listen(int partition) {
+        SimpleMessageListenerContainer container = new SimpleMessageListenerContainer(connectionFactory);
+        container.setQueueNames(queueName(queuePrefix, partition));
+        container.setConcurrentConsumers(1);
+        container.setPrefetchCount(prefetch);
+        container.setMessageListener(message -> consume(partition, message));
+        container.afterPropertiesSet();
+        container.start();
+        return container;
+    }
+
+    void consume(int partition, Message message) {
+        Object received = messageConverter.fromMessage(message);
+        if (!rateLimiter.tryAcquire(RoomCommandHandler.playerId(received))) {
+            handler.rateLimited(received, rateLimiter.policy());
+            return;
+        }
+        MessageProperties properties = message.getMessageProperties();
+        String messageId = properties.getMessageId();
+        boolean redelivered = Boolean.TRUE.equals(properties.getRedelivered());
+        Object command = handler.resolve(received, messageId, redelivered);
+        handler.handle(command, messageId, redelivered);
+        if (command instanceof RoomCreate roomCreate) cache.evictActiveByPlayer(roomCreate.playerId());
+        String roomId = RoomCommandHandler.roomId(command);
+        if (roomId == null) return;
+        if (draining.contains(partition)) {
+            handler.flushReadiness(roomId);
+            cache.flush(roomId);
+            cache.evict(roomId);
+        } else {
+            cachedRooms.computeIfAbsent(partition, p -> ConcurrentHashMap.newKeySet()).add(roomId);
+        }
+    }
+
+    private static long weight(String member, int partition) {
+        long hash = member.hashCode() * 31L + partition;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
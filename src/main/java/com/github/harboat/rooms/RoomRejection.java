@@ -0,0 +1,15 @@
+package com.github.harboat.rooms;
+
+public final class RoomRejection extends RuntimeException {
+
+    private final RoomError code;
+
+    RoomRejection(RoomError code, String message) {
+        super(message, null, false, false);
+        this.code = code;
+    }
+
+    public RoomError code() {
+        return code;
+    }
+}
@@ -2,5 +2,11 @@ package com.github.harboat.rooms;
 
 import org.springframework.data.mongodb.repository.MongoRepository;
 
-public interface RoomRepository extends MongoRepository<Room, String> {
+import java.util.Optional;
+
+public interface RoomRepository extends MongoRepository<Room, String>, AtomicRoomOperations {
+
+    Optional<Room> findFirstByPlayersPlayerIdAndStartedFalse(String playerId);
+
+    boolean existsByProcessedMessageIds(String messageId);
 }
@@ -0,0 +1,31 @@
+package com.github.harboat.rooms;
+
+final class RoomRules {
+
+    private RoomRules() {
+    }
+
+    static void requirePlayer(Room room, String playerId) {
+        if (!room.isPlayerInTheRoom(playerId)) throw RoomError.PLAYER_NOT_IN_GAME.reject();
+    }
+
+    static void requireCanJoin(Room room, String playerId) {
+        if (room.playerCount() == 2) throw RoomError.ROOM_FULL.reject();
+        if (room.isPlayerInTheRoom(playerId)) throw RoomError.ALREADY_IN_THIS_ROOM.reject();
+        if (room.hasStarted()) throw RoomError.GAME_ALREADY_STARTED.reject();
+    }
+
+    static void requireCanChangeReadiness(Room room, String playerId) {
+        requirePlayer(room, playerId);
+        if (!room.isPlayerFleetSet(playerId)) throw RoomError.FLEET_NOT_SET.reject();
+    }
+
+    static void requireCanStart(Room room, String playerId) {
+        requirePlayer(room, playerId);
+        if (!room.isPlayerAnOwner(playerId)) throw RoomError.NOT_AN_OWNER.reject();
+        if (room.playerCount() != 2) throw RoomError.SOLO_GAME.reject();
+        if (!room.areAllPlayersReady()) throw RoomError.PLAYERS_NOT_READY.reject();
+        if (!room.areAllFleetsSet()) throw RoomError.FLEETS_NOT_SET.reject();
+        if (room.hasStarted()) throw RoomError.GAME_ALREADY_STARTED.reject();
+    }
+}
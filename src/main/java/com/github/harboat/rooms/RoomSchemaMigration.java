@@ -0,0 +1,77 @@
+package com.github.harboat.rooms;
+
+import com.mongodb.client.result.UpdateResult;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RoomSchemaMigration {
+
+    private static final String MIGRATIONS = "roomMigrations";
+    private static final String PLAYERS_ARRAY = "players-array";
+    private static final String TIMESTAMPS = "timestamps";
+
+    private final MongoOperations mongoOperations;
+
+    @PostConstruct
+    public void migrate() {
+        runOnce(PLAYERS_ARRAY, this::migratePlayersToArray);
+        runOnce(TIMESTAMPS, this::backfillTimestamps);
+        mongoOperations.indexOps(Room.class).ensureIndex(
+                new Index().on("players.playerId", Sort.Direction.ASC).on("started", Sort.Direction.ASC)
+        );
+        mongoOperations.indexOps(Room.class).ensureIndex(
+                new Index().on("processedMessageIds", Sort.Direction.ASC).sparse()
+        );
+    }
+
+    private void runOnce(String migration, Runnable action) {
+        if (mongoOperations.exists(query(where("_id").is(migration)), MIGRATIONS)) return;
+        action.run();
+        mongoOperations.upsert(query(where("_id").is(migration)), new Update().currentDate("completedAt"), MIGRATIONS);
+        log.info("Completed rooms migration {}", migration);
+    }
+
+    private void backfillTimestamps() {
+        mongoOperations.updateMulti(
+                query(where("lastActivityAt").exists(false)),
+                new Update().currentDate("lastActivityAt"),
+                Room.class
+        );
+        mongoOperations.updateMulti(
+                query(where("started").is(true).and("startedAt").exists(false)),
+                new Update().currentDate("startedAt"),
+                Room.class
+        );
+    }
+
+    private void migratePlayersToArray() {
+        BasicQuery playersAsObject = new BasicQuery(new Document("$expr",
+                new Document("$eq", List.of(new Document("$type", "$players"), "object"))));
+        Document players = new Document("$map", new Document("input", new Document("$objectToArray", "$players"))
+                .append("in", new Document("playerId", "$$this.k")
+                        .append("ready", "$$this.v.ready")
+                        .append("fleetSet", "$$this.v.fleetSet")));
+        AggregationOperation stage = context -> new Document("$set", new Document("players", players));
+        UpdateResult result = mongoOperations.updateMulti(playersAsObject, AggregationUpdate.from(List.of(stage)), Room.class);
+        if (result.getModifiedCount() > 0)
+            log.info("Migrated players of {} rooms to the array schema", result.getModifiedCount());
+    }
+}
@@ -3,101 +3,107 @@ package com.github.harboat.rooms;
 import com.github.harboat.clients.configuration.ConfigurationCreate;
 import com.github.harboat.clients.configuration.ConfigurationPlayerJoin;
 import com.github.harboat.clients.configuration.CreateGame;
-import com.github.harboat.clients.exceptions.BadRequest;
-import com.github.harboat.clients.exceptions.ResourceNotFound;
 import com.github.harboat.clients.notification.EventType;
-import com.github.harboat.clients.notification.NotificationRequest;
 import com.github.harboat.clients.rooms.*;
 import lombok.AllArgsConstructor;
+import org.bson.types.ObjectId;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 @Service
 @AllArgsConstructor
 public class RoomService {
 
-    private RoomRepository repository;
-    private CoreQueueProducer coreQueueProducer;
-    private ConfigQueueProducer configQueueProducer;
+    private RoomStore store;
+    private RoomOutbox outbox;
+    private RoomEventDispatcher dispatcher;
+    private OpenRooms openRooms;
     private NotificationProducer notificationProducer;
+    private RoomLifecycle lifecycle;
+    private LobbyReadModel readModel;
 
     public void create(RoomCreate roomCreate) {
+        if (store.findActiveByPlayer(roomCreate.playerId()).filter(room -> !lifecycle.isExpired(room)).isPresent())
+            throw RoomError.ALREADY_IN_A_ROOM.reject();
         Player player = Player.builder()
+                .playerId(roomCreate.playerId())
                 .ready(false)
                 .fleetSet(false)
                 .build();
-        Room room = repository.save(
+        String roomId = new ObjectId().toHexString();
+        List<Object> events = List.of(
+                new RoomCreated(roomId, roomCreate.playerId()),
+                new ConfigurationCreate(roomId, roomCreate.playerId())
+        );
+        Room room = store.create(
                 Room.builder()
-                        .players(Map.of(
-                                roomCreate.playerId(), player
-                        ))
+                        .id(roomId)
+                        .players(List.of(player))
                         .ownerId(roomCreate.playerId())
                         .started(false)
+                        .outbox(new ArrayList<>(outbox.record(events)))
+                        .lastActivityAt(Instant.now())
                         .build()
         );
-        coreQueueProducer.sendRoom(new RoomCreated(room.getId(), roomCreate.playerId()));
-        configQueueProducer.sendCreate(
-                new ConfigurationCreate(room.getId(), roomCreate.playerId())
-        );
+        track(room);
+        openRooms.open(room.getId(), roomCreate.playerId());
+        if (!outbox.isEnabled()) {
+            dispatcher.dispatch(new RoomCreated(room.getId(), roomCreate.playerId()));
+            dispatcher.dispatch(new ConfigurationCreate(room.getId(), roomCreate.playerId()));
+        }
+    }
+
+    public Object resolveQuickJoin(QuickRoomJoin quickRoomJoin) {
+        return openRooms.claim(quickRoomJoin.playerId())
+                .<Object>map(roomId -> new RoomPlayerJoin(roomId, quickRoomJoin.playerId()))
+                .orElseGet(() -> new RoomCreate(quickRoomJoin.playerId()));
     }
 
     public void markFleetSet(MarkFleetSet markFleetSet) {
-        Room room = getRoomFromRequest(markFleetSet.roomId(), markFleetSet.playerId());
-        room.markPlayerFleetSet(markFleetSet.playerId());
-        repository.save(room);
+        track(store.markFleetSet(markFleetSet.roomId(), markFleetSet.playerId()));
     }
 
     public void unmarkFleet(UnmarkFleetSet unmarkFleetSet) {
-        Room room = getRoomFromRequest(unmarkFleetSet.roomId(), unmarkFleetSet.playerId());
-        room.unmarkFleetSets();
-        repository.save(room);
+        track(store.unmarkFleetSets(unmarkFleetSet.roomId(), unmarkFleetSet.playerId()));
     }
 
     public void changeReady(ChangePlayerReadiness playerReadiness) {
-        Room room = getRoomFromRequest(playerReadiness.roomId(), playerReadiness.playerId());
-        if (!room.isPlayerFleetSet(playerReadiness.playerId()))
-            throw new BadRequest("Player fleet is not set yet, you can't change readiness!");
-        boolean oldValue = room.changePlayerReadiness(playerReadiness.playerId());
-        repository.save(room);
-        room.getPlayers().keySet().forEach(p -> {
-            notificationProducer.sendNotification(
-                    new NotificationRequest<>(p, oldValue ? EventType.PLAYER_UNREADY : EventType.PLAYER_READY, playerReadiness)
-            );
-        });
+        Room room = store.changeReadiness(playerReadiness.roomId(), playerReadiness.playerId());
+        track(room);
+        boolean ready = room.isPlayerReady(playerReadiness.playerId());
+        notificationProducer.broadcast(room.getId(), room.playerIds(),
+                ready ? EventType.PLAYER_READY : EventType.PLAYER_UNREADY, playerReadiness);
     }
 
     public void markStart(MarkStart markStart) {
-        Room room = getRoomFromRequest(markStart.roomId(), markStart.playerId());
-        if (!room.isPlayerAnOwner(markStart.playerId())) throw new BadRequest("You are not an owner of this game!");
-        if (room.getPlayers().size() != 2) throw new BadRequest("You can't play solo!");
-        if (!room.areAllPlayersReady()) throw new BadRequest("Not all players are ready!");
-        if (!room.areAllFleetsSet()) throw new BadRequest("Not all players have fleet set!");
-        room.setStarted(true);
-        repository.save(room);
-        coreQueueProducer.sendStart(new RoomGameStart(markStart.roomId()));
-        configQueueProducer.sendCreateGame(
-                new CreateGame(room.getId(), markStart.playerId())
+        List<Object> events = List.of(
+                new RoomGameStart(markStart.roomId()),
+                new CreateGame(markStart.roomId(), markStart.playerId())
         );
-    }
-
-    private Room getRoomFromRequest(String roomId, String playerId) {
-        Room room = repository.findById(roomId).orElseThrow(() -> new ResourceNotFound("Couldn't find the game!"));
-        if (!room.isPlayerInTheRoom(playerId)) throw new BadRequest("Player is not in the game!");
-        return room;
+        track(store.start(markStart.roomId(), markStart.playerId(), outbox.record(events)));
+        openRooms.close(markStart.roomId());
+        publish(events);
     }
 
     public void joinPlayer(RoomPlayerJoin roomPlayerJoin) {
-        Room room = repository.findById(roomPlayerJoin.roomId()).orElseThrow(() -> new ResourceNotFound("Couldn't find the room!"));
-        if (room.getPlayers().size() == 2) throw new BadRequest("Room is full!");
-        if (room.getPlayers().containsKey(roomPlayerJoin.playerId())) throw new BadRequest("You are already in this room!");
-        room.addPlayer(roomPlayerJoin.playerId());
-        repository.save(room);
-        configQueueProducer.sendPlayerJoin(
-                new ConfigurationPlayerJoin(roomPlayerJoin.roomId(), roomPlayerJoin.playerId())
-        );
-        coreQueueProducer.sendPlayerJoin(
+        List<Object> events = List.of(
+                new ConfigurationPlayerJoin(roomPlayerJoin.roomId(), roomPlayerJoin.playerId()),
                 new RoomPlayerJoined(roomPlayerJoin.roomId(), roomPlayerJoin.playerId())
         );
+        track(store.join(roomPlayerJoin.roomId(), roomPlayerJoin.playerId(), outbox.record(events)));
+        openRooms.close(roomPlayerJoin.roomId());
+        publish(events);
+    }
+
+    private void track(Room room) {
+        lifecycle.track(room);
+        readModel.update(room);
+    }
+
+    private void publish(List<Object> events) {
+        if (!outbox.isEnabled()) events.forEach(dispatcher::dispatch);
     }
 }
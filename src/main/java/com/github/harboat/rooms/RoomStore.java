@@ -0,0 +1,23 @@
+package com.github.harboat.rooms;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface RoomStore {
+
+    Room create(Room room);
+
+    Optional<Room> findById(String roomId);
+
+    Optional<Room> findActiveByPlayer(String playerId);
+
+    Room join(String roomId, String playerId, List<OutboxEvent> events);
+
+    Room markFleetSet(String roomId, String playerId);
+
+    Room unmarkFleetSets(String roomId, String playerId);
+
+    Room changeReadiness(String roomId, String playerId);
+
+    Room start(String roomId, String playerId, List<OutboxEvent> events);
+}
@@ -0,0 +1,37 @@
+package com.github.harboat.rooms;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+public record RoomView(String roomId, String ownerId, List<PlayerState> players, boolean started, long version) {
+
+    public record PlayerState(String playerId, boolean ready, boolean fleetSet) {
+    }
+
+    public record Delta(String roomId, long version, List<PlayerState> players, Boolean started) {
+    }
+
+    static RoomView of(Room room, long version) {
+        List<PlayerState> players = room.getPlayers().stream()
+                .map(p -> new PlayerState(p.getPlayerId(), Boolean.TRUE.equals(p.getReady()), Boolean.TRUE.equals(p.getFleetSet())))
+                .toList();
+        return new RoomView(room.getId(), room.getOwnerId(), players, room.hasStarted(), version);
+    }
+
+    boolean sameState(RoomView other) {
+        return other != null
+                && Objects.equals(ownerId, other.ownerId)
+                && players.equals(other.players)
+                && started == other.started;
+    }
+
+    Delta deltaFrom(RoomView previous) {
+        if (previous == null) return new Delta(roomId, version, players, started);
+        List<PlayerState> changed = new ArrayList<>(players.size());
+        for (PlayerState player : players) {
+            if (!previous.players.contains(player)) changed.add(player);
+        }
+        return new Delta(roomId, version, changed, previous.started == started ? null : started);
+    }
+}
@@ -3,6 +3,7 @@ package com.github.harboat.rooms;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.netflix.eureka.EnableEurekaClient;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication(
         scanBasePackages = {
@@ -11,6 +12,7 @@ import org.springframework.cloud.netflix.eureka.EnableEurekaClient;
         }
 )
 @EnableEurekaClient
+@EnableScheduling
 public class RoomsApplication {
     public static void main(String[] args) {
         SpringApplication.run(RoomsApplication.class, args);
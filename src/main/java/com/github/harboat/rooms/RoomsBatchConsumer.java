@@ -0,0 +1,89 @@
+package com.github.harboat.rooms;
+
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "rooms.batch.enabled", havingValue = "true")
+public class RoomsBatchConsumer {
+
+    private final RoomCommandHandler handler;
+    private final MessageConverter messageConverter;
+
+    public RoomsBatchConsumer(
+            RoomCommandHandler handler,
+            MessageConverter messageConverter,
+            @Value("${rooms.partitions.enabled}") boolean partitioned
+    ) {
+        if (partitioned)
+            throw new IllegalStateException("Batch consumption reads the rooms queue that rooms.partitions.enabled=true routes to partitions");
+        this.handler = handler;
+        this.messageConverter = messageConverter;
+    }
+
+    @RabbitListener(
+            queues = {"${rabbitmq.queues.rooms}"},
+            containerFactory = "roomsBatchListenerContainerFactory"
+    )
+    public void consume(List<Message> messages, Channel channel) {
+        Map<String, List<Inbound>> commandsByRoom = new LinkedHashMap<>();
+        for (Message message : messages) {
+            MessageProperties properties = message.getMessageProperties();
+            String messageId = properties.getMessageId();
+            boolean redelivered = Boolean.TRUE.equals(properties.getRedelivered());
+            Object command = handler.resolve(messageConverter.fromMessage(message), messageId, redelivered);
+            commandsByRoom.computeIfAbsent(RoomCommandHandler.roomKey(command), k -> new ArrayList<>())
+                    .add(new Inbound(command, messageId, redelivered, properties.getDeliveryTag()));
+        }
+        List<Long> handled = new ArrayList<>(messages.size());
+        List<Long> failed = new ArrayList<>();
+        commandsByRoom.forEach((roomKey, commands) -> {
+            for (int i = 0; i < commands.size(); i++) {
+                Inbound inbound = commands.get(i);
+                try {
+                    handler.handle(inbound.command(), inbound.messageId(), inbound.redelivered());
+                    handled.add(inbound.deliveryTag());
+                } catch (RuntimeException e) {
+                    log.error("Processing of {} failed, requeueing it and the rest of its room", inbound.command(), e);
+                    commands.subList(i, commands.size()).forEach(rest -> failed.add(rest.deliveryTag()));
+                    break;
+                }
+            }
+        });
+        handled.forEach(tag -> ack(channel, tag));
+        failed.forEach(tag -> nack(channel, tag));
+    }
+
+    private static void ack(Channel channel, long deliveryTag) {
+        try {
+            channel.basicAck(deliveryTag, false);
+        } catch (IOException e) {
+            log.error("Couldn't acknowledge message {}", deliveryTag, e);
+        }
+    }
+
+    private static void nack(Channel channel, long deliveryTag) {
+        try {
+            channel.basicNack(deliveryTag, false, true);
+        } catch (IOException e) {
+            log.error("Couldn't reject message {}", deliveryTag, e);
+        }
+    }
+
+    private record Inbound(Object command, String messageId, boolean redelivered, long deliveryTag) {
+    }
+}
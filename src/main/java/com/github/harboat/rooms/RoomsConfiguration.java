@@ -1,12 +1,34 @@
 package com.github.harboat.rooms;
 
+import org.springframework.amqp.core.AcknowledgeMode;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.CustomExchange;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
 import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
 import org.springframework.amqp.core.TopicExchange;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.RabbitConnectionFactoryBean;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.CachingConnectionFactoryConfigurer;
+import org.springframework.boot.autoconfigure.amqp.RabbitConnectionFactoryBeanConfigurer;
+import org.springframework.boot.autoconfigure.amqp.RabbitTemplateConfigurer;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @Configuration
 public class RoomsConfiguration {
@@ -20,6 +42,61 @@ public class RoomsConfiguration {
     @Value("${rabbitmq.routing-keys.rooms}")
     private String internalRoomsRoutingKey;
 
+    @Value("${rabbitmq.exchanges.rooms-partitioned}")
+    private String partitionedExchange;
+
+    @Value("${rabbitmq.queues.rooms-partition-prefix}")
+    private String partitionQueuePrefix;
+
+    @Value("${rooms.lanes.prefetch}")
+    private int lanesPrefetch;
+
+    @Value("${rooms.store}")
+    private String store;
+
+    @Value("${rooms.virtual-threads.enabled}")
+    private boolean virtualThreads;
+
+    @Value("${rooms.virtual-threads.max-concurrency}")
+    private int virtualThreadsMaxConcurrency;
+
+    @Value("${rooms.virtual-threads.prefetch}")
+    private int virtualThreadsPrefetch;
+
+    @Value("${rooms.batch.size}")
+    private int batchSize;
+
+    @Value("${rooms.batch.receive-timeout}")
+    private long batchReceiveTimeout;
+
+    @Bean
+    @Primary
+    public MessageConverter roomsMessageConverter(WireFormat wireFormat) {
+        return wireFormat.converter();
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "rooms.publisher.mode", havingValue = "confirming")
+    public ConfirmingMessagePublisher confirmingMessagePublisher(
+            RabbitConnectionFactoryBeanConfigurer connectionFactoryBeanConfigurer,
+            CachingConnectionFactoryConfigurer connectionFactoryConfigurer,
+            RabbitTemplateConfigurer rabbitTemplateConfigurer,
+            MeterRegistry meterRegistry,
+            WireFormat wireFormat,
+            @Value("${rooms.publisher.queue-capacity}") int queueCapacity,
+            @Value("${rooms.publisher.max-outstanding-confirms}") int maxOutstanding
+    ) throws Exception {
+        RabbitConnectionFactoryBean connectionFactoryBean = new RabbitConnectionFactoryBean();
+        connectionFactoryBeanConfigurer.configure(connectionFactoryBean);
+        connectionFactoryBean.afterPropertiesSet();
+        CachingConnectionFactory connectionFactory = new CachingConnectionFactory(connectionFactoryBean.getObject());
+        connectionFactoryConfigurer.configure(connectionFactory);
+        connectionFactory.setPublisherConfirmType(CachingConnectionFactory.ConfirmType.CORRELATED);
+        RabbitTemplate rabbitTemplate = new RabbitTemplate();
+        rabbitTemplateConfigurer.configure(rabbitTemplate, connectionFactory);
+        return new ConfirmingMessagePublisher(rabbitTemplate, meterRegistry, wireFormat, queueCapacity, maxOutstanding);
+    }
+
     @Bean
     public TopicExchange internalTopicExchange() {
         return new TopicExchange(internalGameExchange);
@@ -38,4 +115,63 @@ public class RoomsConfiguration {
                 .with(internalRoomsRoutingKey);
     }
 
+    @Bean
+    @ConditionalOnProperty(name = "rooms.partitions.enabled", havingValue = "true")
+    public Declarables roomPartitionTopology(@Value("${rooms.partitions.count}") int partitions) {
+        CustomExchange exchange = new CustomExchange(partitionedExchange, "x-consistent-hash", true, false);
+        List<Declarable> declarables = new ArrayList<>();
+        declarables.add(exchange);
+        for (int i = 0; i < partitions; i++) {
+            Queue queue = QueueBuilder.durable(RoomPartitions.queueName(partitionQueuePrefix, i))
+                    .singleActiveConsumer()
+                    .build();
+            declarables.add(queue);
+            declarables.add(BindingBuilder.bind(queue).to(exchange).with("1").noargs());
+        }
+        return new Declarables(declarables);
+    }
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory roomsListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            RoomLanes lanes
+    ) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        if (lanes.isEnabled()) {
+            factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+            factory.setConcurrentConsumers(1);
+            factory.setMaxConcurrentConsumers(1);
+            factory.setPrefetchCount(lanesPrefetch);
+        } else if (virtualThreads) {
+            if (!"atomic".equals(store))
+                throw new IllegalStateException("Virtual-thread consumers need rooms.lanes.enabled=true or rooms.store=atomic, got rooms.store=" + store);
+            factory.setTaskExecutor(new TaskExecutorAdapter(VirtualThreads.newThreadPerTaskExecutor()));
+            factory.setConcurrentConsumers(virtualThreadsMaxConcurrency);
+            factory.setMaxConcurrentConsumers(virtualThreadsMaxConcurrency);
+            factory.setPrefetchCount(virtualThreadsPrefetch);
+        }
+        return factory;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "rooms.batch.enabled", havingValue = "true")
+    public SimpleRabbitListenerContainerFactory roomsBatchListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory
+    ) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(batchReceiveTimeout);
+        factory.setPrefetchCount(batchSize);
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+        return factory;
+    }
+
 }
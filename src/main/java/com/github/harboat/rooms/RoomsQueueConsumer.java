@@ -1,82 +1,100 @@
 package com.github.harboat.rooms;
 
-import com.github.harboat.clients.exceptions.BadRequest;
-import com.github.harboat.clients.exceptions.ResourceNotFound;
-import com.github.harboat.clients.notification.EventType;
-import com.github.harboat.clients.notification.NotificationRequest;
 import com.github.harboat.clients.rooms.*;
+import com.rabbitmq.client.Channel;
 import lombok.AllArgsConstructor;
 import org.springframework.amqp.rabbit.annotation.RabbitHandler;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Service;
 
 @Service
 @AllArgsConstructor
+@ConditionalOnProperty(name = {"rooms.batch.enabled", "rooms.reactive.enabled", "rooms.partitions.enabled"}, havingValue = "false", matchIfMissing = true)
 @RabbitListener(
-        queues = {"${rabbitmq.queues.rooms}"}
+        queues = {"${rabbitmq.queues.rooms}"},
+        containerFactory = "roomsListenerContainerFactory"
 )
 public class RoomsQueueConsumer {
 
-    private RoomService service;
-    private NotificationProducer notificationProducer;
+    private RoomCommandHandler handler;
+    private RoomLanes lanes;
+    private PlayerRateLimiter rateLimiter;
 
     @RabbitHandler
-    public void consume(RoomCreate roomCreate) {
-        service.create(roomCreate);
+    public void consume(RoomCreate roomCreate,
+                        @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String messageId,
+                        @Header(name = AmqpHeaders.REDELIVERED, required = false) Boolean redelivered,
+                        Channel channel, @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
+        dispatch(roomCreate, messageId, redelivered, channel, deliveryTag);
     }
 
     @RabbitHandler
-    public void consume(RoomPlayerJoin roomPlayerJoin) {
-        try {
-            service.joinPlayer(roomPlayerJoin);
-        } catch (BadRequest | ResourceNotFound e) {
-            notificationProducer.sendNotification(
-                    new NotificationRequest<>(roomPlayerJoin.playerId(), EventType.EXCEPTION, e)
-            );
-        }
+    public void consume(RoomPlayerJoin roomPlayerJoin,
+                        @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String messageId,
+                        @Header(name = AmqpHeaders.REDELIVERED, required = false) Boolean redelivered,
+                        Channel channel, @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
+        dispatch(roomPlayerJoin, messageId, redelivered, channel, deliveryTag);
     }
 
     @RabbitHandler
-    public void consume(ChangePlayerReadiness playerReadiness) {
-        try {
-            service.changeReady(playerReadiness);
-        } catch (BadRequest | ResourceNotFound e) {
-            notificationProducer.sendNotification(
-                    new NotificationRequest<>(playerReadiness.playerId(), EventType.EXCEPTION, e)
-            );
-        }
+    public void consume(ChangePlayerReadiness playerReadiness,
+                        @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String messageId,
+                        @Header(name = AmqpHeaders.REDELIVERED, required = false) Boolean redelivered,
+                        Channel channel, @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
+        dispatch(playerReadiness, messageId, redelivered, channel, deliveryTag);
     }
 
     @RabbitHandler
-    public void consume(MarkStart markStart) {
-        try {
-            service.markStart(markStart);
-        } catch (BadRequest | ResourceNotFound e) {
-            notificationProducer.sendNotification(
-                    new NotificationRequest<>(markStart.playerId(), EventType.EXCEPTION, e)
-            );
-        }
+    public void consume(MarkStart markStart,
+                        @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String messageId,
+                        @Header(name = AmqpHeaders.REDELIVERED, required = false) Boolean redelivered,
+                        Channel channel, @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
+        dispatch(markStart, messageId, redelivered, channel, deliveryTag);
     }
 
     @RabbitHandler
-    public void consume(MarkFleetSet markFleetSet) {
-        try {
-            service.markFleetSet(markFleetSet);
-        } catch (BadRequest | ResourceNotFound e) {
-            notificationProducer.sendNotification(
-                    new NotificationRequest<>(markFleetSet.playerId(), EventType.EXCEPTION, e)
-            );
-        }
+    public void consume(MarkFleetSet markFleetSet,
+                        @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String messageId,
+                        @Header(name = AmqpHeaders.REDELIVERED, required = false) Boolean redelivered,
+                        Channel channel, @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
+        dispatch(markFleetSet, messageId, redelivered, channel, deliveryTag);
+    }
+
+    @RabbitHandler
+    public void consume(UnmarkFleetSet unmarkFleetSet,
+                        @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String messageId,
+                        @Header(name = AmqpHeaders.REDELIVERED, required = false) Boolean redelivered,
+                        Channel channel, @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
+        dispatch(unmarkFleetSet, messageId, redelivered, channel, deliveryTag);
     }
 
     @RabbitHandler
-    public void consume(UnmarkFleetSet unmarkFleetSet) {
-        try {
-            service.unmarkFleet(unmarkFleetSet);
-        } catch (BadRequest | ResourceNotFound e) {
-            notificationProducer.sendNotification(
-                    new NotificationRequest<>(unmarkFleetSet.playerId(), EventType.EXCEPTION, e)
+    public void consume(QuickRoomJoin quickRoomJoin,
+                        @Header(name = AmqpHeaders.MESSAGE_ID, required = false) String messageId,
+                        @Header(name = AmqpHeaders.REDELIVERED, required = false) Boolean redelivered,
+                        Channel channel, @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
+        dispatch(quickRoomJoin, messageId, redelivered, channel, deliveryTag);
+    }
+
+    private void dispatch(Object received, String messageId, Boolean redelivered, Channel channel, long deliveryTag) {
+        if (!rateLimiter.tryAcquire(RoomCommandHandler.playerId(received))) {
+            lanes.execute(
+                    RoomCommandHandler.roomKey(received),
+                    () -> handler.rateLimited(received, rateLimiter.policy()),
+                    channel,
+                    deliveryTag
             );
+            return;
         }
+        Object command = handler.resolve(received, messageId, Boolean.TRUE.equals(redelivered));
+        lanes.execute(
+                RoomCommandHandler.roomKey(command),
+                () -> handler.handle(command, messageId, Boolean.TRUE.equals(redelivered)),
+                channel,
+                deliveryTag
+        );
     }
 }
@@ -0,0 +1,62 @@
+package com.github.harboat.rooms;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.AbstractMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+class SmileMessageConverter extends AbstractMessageConverter {
+
+    static final String CONTENT_TYPE = "application/x-jackson-smile";
+
+    private final ObjectMapper objectMapper;
+    private final Map<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+    private final Map<String, ObjectReader> readers = new ConcurrentHashMap<>();
+
+    SmileMessageConverter(List<Class<?>> types) {
+        this.objectMapper = SmileMapper.builder()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+        types.forEach(type -> {
+            writers.put(type, objectMapper.writerFor(type));
+            readers.put(type.getName(), objectMapper.readerFor(type));
+        });
+    }
+
+    @Override
+    protected Message createMessage(Object object, MessageProperties messageProperties) {
+        try {
+            byte[] body = writers.computeIfAbsent(object.getClass(), objectMapper::writerFor)
+                    .writeValueAsBytes(object);
+            messageProperties.setContentType(CONTENT_TYPE);
+            messageProperties.setContentLength(body.length);
+            messageProperties.setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, object.getClass().getName());
+            return new Message(body, messageProperties);
+        } catch (IOException e) {
+            throw new MessageConversionException("Couldn't write " + object.getClass().getSimpleName() + " as Smile", e);
+        }
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        Object typeId = message.getMessageProperties().getHeaders().get(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME);
+        ObjectReader reader = typeId == null ? null : readers.get(typeId.toString());
+        if (reader == null) throw new MessageConversionException("Unregistered Smile message type " + typeId);
+        try {
+            return reader.readValue(message.getBody());
+        } catch (IOException e) {
+            throw new MessageConversionException("Couldn't read " + typeId + " from Smile", e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.github.harboat.rooms;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+final class TimerWheel<K, V> {
+
+    private final long tickMillis;
+    private final int mask;
+    private final List<Map<K, Timeout<V>>> buckets;
+    private final Map<K, Timeout<V>> timeouts = new HashMap<>();
+    private long currentTick;
+
+    TimerWheel(long tickMillis, int ticksPerWheel, long nowMillis) {
+        if (tickMillis <= 0) throw new IllegalArgumentException("Tick must be positive");
+        if (ticksPerWheel <= 0 || Integer.bitCount(ticksPerWheel) != 1)
+            throw new IllegalArgumentException("Ticks per wheel must be a power of two");
+        this.tickMillis = tickMillis;
+        this.mask = ticksPerWheel - 1;
+        this.buckets = new ArrayList<>(ticksPerWheel);
+        for (int i = 0; i < ticksPerWheel; i++) buckets.add(new HashMap<>());
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    synchronized void schedule(K key, V value, long deadlineMillis) {
+        cancel(key);
+        long deadlineTick = Math.max((deadlineMillis + tickMillis - 1) / tickMillis, currentTick + 1);
+        Timeout<V> timeout = new Timeout<>(value, deadlineTick);
+        buckets.get(bucket(deadlineTick)).put(key, timeout);
+        timeouts.put(key, timeout);
+    }
+
+    synchronized boolean cancel(K key) {
+        Timeout<V> timeout = timeouts.remove(key);
+        if (timeout == null) return false;
+        buckets.get(bucket(timeout.deadlineTick())).remove(key);
+        return true;
+    }
+
+    void advance(long nowMillis, BiConsumer<K, V> onExpired) {
+        Map<K, V> expired = new HashMap<>();
+        synchronized (this) {
+            long nowTick = nowMillis / tickMillis;
+            long lastTick = Math.min(nowTick, currentTick + mask + 1);
+            for (long tick = currentTick + 1; tick <= lastTick; tick++) {
+                Iterator<Map.Entry<K, Timeout<V>>> entries = buckets.get(bucket(tick)).entrySet().iterator();
+                while (entries.hasNext()) {
+                    Map.Entry<K, Timeout<V>> entry = entries.next();
+                    if (entry.getValue().deadlineTick() > nowTick) continue;
+                    entries.remove();
+                    timeouts.remove(entry.getKey());
+                    expired.put(entry.getKey(), entry.getValue().value());
+                }
+            }
+            currentTick = Math.max(currentTick, nowTick);
+        }
+        expired.forEach(onExpired);
+    }
+
+    synchronized int size() {
+        return timeouts.size();
+    }
+
+    private int bucket(long tick) {
+        return (int) (tick & mask);
+    }
+
+    private record Timeout<V>(V value, long deadlineTick) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.github.harboat.rooms;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class UnknownRooms {
+
+    private final long ttlMillis;
+    private final int maxSize;
+    private final Map<String, Long> expiries = new ConcurrentHashMap<>();
+
+    public UnknownRooms(
+            @Value("${rooms.guard.unknown-room-ttl}") Duration ttl,
+            @Value("${rooms.guard.unknown-room-max-size}") int maxSize
+    ) {
+        this.ttlMillis = ttl.toMillis();
+        this.maxSize = maxSize;
+    }
+
+    public void remember(String roomId) {
+        long now = System.currentTimeMillis();
+        if (expiries.size() >= maxSize) expiries.values().removeIf(expiresAt -> expiresAt <= now);
+        if (expiries.size() < maxSize) expiries.put(roomId, now + ttlMillis);
+    }
+
+    public boolean contains(String roomId) {
+        Long expiresAt = expiries.get(roomId);
+        if (expiresAt == null) return false;
+        if (expiresAt > System.currentTimeMillis()) return true;
+        expiries.remove(roomId, expiresAt);
+        return false;
+    }
+
+    int size() {
+        return expiries.size();
+    }
+}
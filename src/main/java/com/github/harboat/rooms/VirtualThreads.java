@@ -0,0 +1,23 @@
+package com.github.harboat.rooms;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("Virtual threads require JDK 21 or newer, running on " + Runtime.version(), e);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Couldn't create virtual thread executor", e);
+        }
+    }
+}
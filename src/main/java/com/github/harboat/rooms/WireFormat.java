@@ -0,0 +1,61 @@
+package com.github.harboat.rooms;
+
+import com.github.harboat.clients.configuration.ConfigurationCreate;
+import com.github.harboat.clients.configuration.ConfigurationPlayerJoin;
+import com.github.harboat.clients.configuration.CreateGame;
+import com.github.harboat.clients.notification.NotificationRequest;
+import com.github.harboat.clients.rooms.*;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.ContentTypeDelegatingMessageConverter;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+
+@Component
+public class WireFormat {
+
+    private static final List<Class<?>> REGISTERED_TYPES = List.of(
+            RoomCreate.class,
+            RoomCreated.class,
+            RoomPlayerJoin.class,
+            RoomPlayerJoined.class,
+            RoomGameStart.class,
+            ChangePlayerReadiness.class,
+            MarkStart.class,
+            MarkFleetSet.class,
+            UnmarkFleetSet.class,
+            QuickRoomJoin.class,
+            ConfigurationCreate.class,
+            ConfigurationPlayerJoin.class,
+            CreateGame.class,
+            NotificationRequest.class,
+            RoomBroadcast.class,
+            RejectionNotice.class
+    );
+
+    private final ContentTypeDelegatingMessageConverter converter;
+    private final Set<String> binaryExchanges;
+
+    public WireFormat(@Value("${rooms.wire.binary-exchanges}") Set<String> binaryExchanges) {
+        Jackson2JsonMessageConverter json = new Jackson2JsonMessageConverter();
+        this.converter = new ContentTypeDelegatingMessageConverter(json);
+        this.converter.addDelegate(MessageProperties.CONTENT_TYPE_JSON, json);
+        this.converter.addDelegate(SmileMessageConverter.CONTENT_TYPE, new SmileMessageConverter(REGISTERED_TYPES));
+        this.binaryExchanges = binaryExchanges;
+    }
+
+    public MessageConverter converter() {
+        return converter;
+    }
+
+    public Object encode(Object payload, String exchange) {
+        if (!binaryExchanges.contains(exchange)) return payload;
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(SmileMessageConverter.CONTENT_TYPE);
+        return converter.toMessage(payload, properties);
+    }
+}
@@ -0,0 +1,97 @@
+package com.github.harboat.rooms;
+
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.testng.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+@Listeners({MockitoTestNGListener.class})
+public class AtomicRoomStoreTest {
+
+    @Mock
+    private RoomRepository repository;
+    private AtomicRoomStore store;
+    private String roomId;
+    private String playerId;
+
+    @BeforeMethod
+    public void setUp() {
+        store = new AtomicRoomStore(repository);
+        roomId = "testRoom";
+        playerId = "testPlayer";
+    }
+
+    @Test
+    public void markFleetSetShouldReturnUpdatedRoomWithoutReadingIt() {
+        //given
+        Room room = Room.builder().id(roomId).build();
+        given(repository.markFleetSet(roomId, playerId)).willReturn(Optional.of(room));
+        //when
+        var actual = store.markFleetSet(roomId, playerId);
+        //then
+        verify(repository, never()).findById(any());
+        assertSame(actual, room);
+    }
+
+    @Test(expectedExceptions = RoomRejection.class, expectedExceptionsMessageRegExp = "Couldn't find the room!")
+    public void joinShouldThrowWhenThereIsNoRoomWithThisId() {
+        //given
+        given(repository.addPlayer(roomId, playerId, List.of())).willReturn(Optional.empty());
+        given(repository.findById(roomId)).willReturn(Optional.empty());
+        //when
+        store.join(roomId, playerId, List.of());
+        //then
+    }
+
+    @Test(expectedExceptions = RoomRejection.class, expectedExceptionsMessageRegExp = "Room is full!")
+    public void joinShouldReportWhyGuardRejectedTheUpdate() {
+        //given
+        List<Player> players = new ArrayList<>() {{
+            add(new Player("testOwner", false, false));
+            add(new Player("testEnemy", false, false));
+        }};
+        Room room = Room.builder().id(roomId).players(players).build();
+        given(repository.addPlayer(roomId, playerId, List.of())).willReturn(Optional.empty());
+        given(repository.findById(roomId)).willReturn(Optional.of(room));
+        //when
+        store.join(roomId, playerId, List.of());
+        //then
+    }
+
+    @Test(expectedExceptions = RoomRejection.class, expectedExceptionsMessageRegExp = "Player fleet is not set yet, you can't change readiness!")
+    public void changeReadinessShouldReportWhyGuardRejectedTheUpdate() {
+        //given
+        List<Player> players = new ArrayList<>() {{
+            add(new Player(playerId, false, false));
+        }};
+        Room room = Room.builder().id(roomId).players(players).build();
+        given(repository.toggleReadiness(roomId, playerId)).willReturn(Optional.empty());
+        given(repository.findById(roomId)).willReturn(Optional.of(room));
+        //when
+        store.changeReadiness(roomId, playerId);
+        //then
+    }
+
+    @Test(expectedExceptions = RoomRejection.class, expectedExceptionsMessageRegExp = "Room has changed, try again!")
+    public void startShouldThrowWhenRoomChangedBetweenUpdateAndDiagnosis() {
+        //given
+        List<Player> players = new ArrayList<>() {{
+            add(new Player(playerId, true, true));
+            add(new Player("testEnemy", true, true));
+        }};
+        Room room = Room.builder().id(roomId).ownerId(playerId).players(players).started(false).build();
+        given(repository.markStarted(roomId, playerId, List.of())).willReturn(Optional.empty());
+        given(repository.findById(roomId)).willReturn(Optional.of(room));
+        //when
+        store.start(roomId, playerId, List.of());
+        //then
+    }
+}
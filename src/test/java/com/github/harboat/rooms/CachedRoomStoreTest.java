@@ -0,0 +1,19 @@
+package com.github.harboat.rooms;
+
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+@Listeners({MockitoTestNGListener.class})
+public class CachedRoomStoreTest {
+
+    @Mock
+    private RoomCache cache;
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void constructorShouldRejectRoomsWithoutSingleOwner() {
+        //when
+        new CachedRoomStore(cache, false);
+    }
+}
@@ -4,6 +4,7 @@ import com.github.harboat.clients.configuration.ConfigurationCreate;
 import com.github.harboat.clients.configuration.ConfigurationPlayerJoin;
 import com.github.harboat.clients.configuration.CreateGame;
 import com.github.harboat.rabbitmq.RabbitMQMessageProducer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.testng.MockitoTestNGListener;
@@ -11,6 +12,8 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
 
+import java.util.Set;
+
 import static org.testng.Assert.*;
 import static org.mockito.BDDMockito.*;
 
@@ -23,7 +26,7 @@ public class ConfigQueueProducerTest {
 
     @BeforeMethod
     public void setUp() {
-        producer = new ConfigQueueProducer(rabbitMQMessageProducer);
+        producer = new ConfigQueueProducer(new DirectMessagePublisher(rabbitMQMessageProducer, new SimpleMeterRegistry(), new WireFormat(Set.of())));
     }
 
     @Test
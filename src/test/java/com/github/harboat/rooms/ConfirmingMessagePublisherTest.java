@@ -0,0 +1,90 @@
+package com.github.harboat.rooms;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+
+import static org.testng.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+@Listeners({MockitoTestNGListener.class})
+public class ConfirmingMessagePublisherTest {
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+    private MeterRegistry meterRegistry;
+    private ConfirmingMessagePublisher publisher;
+
+    @BeforeMethod
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        publisher = new ConfirmingMessagePublisher(rabbitTemplate, meterRegistry, new WireFormat(Set.of()), 10, 10);
+    }
+
+    @AfterMethod
+    public void tearDown() throws InterruptedException {
+        publisher.shutdown();
+    }
+
+    @Test
+    public void publishShouldKeepMessageOutstandingUntilConfirmed() {
+        //given
+        ArgumentCaptor<CorrelationData> captor = ArgumentCaptor.forClass(CorrelationData.class);
+        //when
+        publisher.publish("testPayload", "testExchange", "testKey");
+        verify(rabbitTemplate, timeout(1000)).convertAndSend(eq("testExchange"), eq("testKey"), eq((Object) "testPayload"), captor.capture());
+        int outstanding = publisher.outstanding();
+        captor.getValue().getFuture().set(new CorrelationData.Confirm(true, null));
+        //then
+        assertEquals(outstanding, 1);
+        assertEquals(publisher.outstanding(), 0);
+        assertEquals(meterRegistry.get("rooms.publish.confirm").timer().count(), 1L);
+    }
+
+    @Test
+    public void publishShouldCountNegativeAcknowledgements() {
+        //given
+        ArgumentCaptor<CorrelationData> captor = ArgumentCaptor.forClass(CorrelationData.class);
+        //when
+        publisher.publish("testPayload", "testExchange", "testKey");
+        verify(rabbitTemplate, timeout(1000)).convertAndSend(eq("testExchange"), eq("testKey"), eq((Object) "testPayload"), captor.capture());
+        captor.getValue().getFuture().set(new CorrelationData.Confirm(false, "testReason"));
+        //then
+        assertEquals(meterRegistry.get("rooms.publish.failures").tag("reason", "nack").counter().count(), 1.0);
+    }
+
+    @Test
+    public void publishConfirmedShouldFailWhenBrokerRejectsMessage() {
+        //given
+        ArgumentCaptor<CorrelationData> captor = ArgumentCaptor.forClass(CorrelationData.class);
+        //when
+        var confirmed = publisher.publishConfirmed("testPayload", "testExchange", "testKey");
+        verify(rabbitTemplate, timeout(1000)).convertAndSend(eq("testExchange"), eq("testKey"), eq((Object) "testPayload"), captor.capture());
+        captor.getValue().getFuture().set(new CorrelationData.Confirm(false, "testReason"));
+        //then
+        assertTrue(confirmed.isCompletedExceptionally());
+    }
+
+    @Test
+    public void publishConfirmedShouldCompleteWhenBrokerAcknowledgesMessage() {
+        //given
+        ArgumentCaptor<CorrelationData> captor = ArgumentCaptor.forClass(CorrelationData.class);
+        //when
+        var confirmed = publisher.publishConfirmed("testPayload", "testExchange", "testKey");
+        verify(rabbitTemplate, timeout(1000)).convertAndSend(eq("testExchange"), eq("testKey"), eq((Object) "testPayload"), captor.capture());
+        captor.getValue().getFuture().set(new CorrelationData.Confirm(true, null));
+        //then
+        assertTrue(confirmed.isDone());
+        assertFalse(confirmed.isCompletedExceptionally());
+    }
+}
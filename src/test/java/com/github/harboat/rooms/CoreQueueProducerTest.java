@@ -4,6 +4,7 @@ import com.github.harboat.clients.rooms.RoomCreated;
 import com.github.harboat.clients.rooms.RoomGameStart;
 import com.github.harboat.clients.rooms.RoomPlayerJoined;
 import com.github.harboat.rabbitmq.RabbitMQMessageProducer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.testng.MockitoTestNGListener;
@@ -11,6 +12,8 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
 
+import java.util.Set;
+
 import static org.testng.Assert.*;
 import static org.mockito.BDDMockito.*;
 
@@ -23,7 +26,7 @@ public class CoreQueueProducerTest {
 
     @BeforeMethod
     public void setUp() {
-        coreQueueProducer = new CoreQueueProducer(producer);
+        coreQueueProducer = new CoreQueueProducer(new DirectMessagePublisher(producer, new SimpleMeterRegistry(), new WireFormat(Set.of())));
     }
 
     @Test
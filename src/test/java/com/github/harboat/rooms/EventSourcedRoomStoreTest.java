@@ -0,0 +1,196 @@
+package com.github.harboat.rooms;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.Document;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.testng.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+@Listeners({MockitoTestNGListener.class})
+public class EventSourcedRoomStoreTest {
+
+    @Mock
+    private RoomRepository repository;
+    @Mock
+    private MongoOperations mongoOperations;
+    private EventSourcedRoomStore store;
+    private String roomId;
+    private String playerId;
+
+    @BeforeMethod
+    public void setUp() {
+        store = new EventSourcedRoomStore(repository, mongoOperations, new RoomOutbox(false, new ObjectMapper()),
+                20, Duration.ofDays(30), 100);
+        roomId = "testRoom";
+        playerId = "testPlayer";
+    }
+
+    @Test
+    public void loadShouldReplayEventsNewerThanSnapshot() {
+        //given
+        given(repository.findById(roomId)).willReturn(Optional.of(snapshot(2)));
+        given(mongoOperations.find(any(Query.class), eq(RoomEvent.class))).willReturn(List.of(
+                event(3, RoomEvent.Type.FLEET_SET, playerId),
+                event(4, RoomEvent.Type.READINESS_CHANGED, playerId)
+        ));
+        //when
+        var actual = store.load(roomId).orElseThrow();
+        //then
+        assertEquals(actual.lastSequence(), 4);
+        assertTrue(actual.isPlayerFleetSet(playerId));
+        assertTrue(actual.isPlayerReady(playerId));
+    }
+
+    @Test
+    public void markFleetSetShouldAppendNextEventWithoutRewritingRoom() {
+        //given
+        given(repository.findById(roomId)).willReturn(Optional.of(snapshot(2)));
+        given(mongoOperations.find(any(Query.class), eq(RoomEvent.class))).willReturn(List.of());
+        ArgumentCaptor<RoomEvent> captor = ArgumentCaptor.forClass(RoomEvent.class);
+        //when
+        var actual = store.markFleetSet(roomId, playerId);
+        //then
+        verify(mongoOperations).insert(captor.capture());
+        assertEquals(captor.getValue().getSequence(), 3);
+        assertEquals(captor.getValue().getType(), RoomEvent.Type.FLEET_SET);
+        assertTrue(actual.isPlayerFleetSet(playerId));
+        verify(mongoOperations, never()).findAndReplace(any(Query.class), any(Room.class));
+        verify(mongoOperations).updateFirst(any(Query.class), any(Update.class), eq(Room.class));
+    }
+
+    @Test
+    public void markFleetSetShouldServeNextCommandFromMemory() {
+        //given
+        given(repository.findById(roomId)).willReturn(Optional.of(snapshot(2)));
+        given(mongoOperations.find(any(Query.class), eq(RoomEvent.class))).willReturn(List.of());
+        store.markFleetSet(roomId, playerId);
+        //when
+        var actual = store.changeReadiness(roomId, playerId);
+        //then
+        verify(repository, times(1)).findById(roomId);
+        assertEquals(actual.lastSequence(), 4);
+        assertTrue(actual.isPlayerReady(playerId));
+    }
+
+    @Test
+    public void loadShouldReplayEventsAppendedElsewhereSinceCaching() {
+        //given
+        given(repository.findById(roomId)).willReturn(Optional.of(snapshot(2)));
+        given(mongoOperations.find(any(Query.class), eq(RoomEvent.class))).willReturn(
+                List.of(),
+                List.of(event(3, RoomEvent.Type.FLEET_SET, playerId))
+        );
+        store.load(roomId);
+        //when
+        var actual = store.load(roomId).orElseThrow();
+        //then
+        verify(repository, times(1)).findById(roomId);
+        assertEquals(actual.lastSequence(), 3);
+        assertTrue(actual.isPlayerFleetSet(playerId));
+    }
+
+    @Test
+    public void createShouldRemoveRoomWhenItsEventCannotBeWritten() {
+        //given
+        Room room = snapshot(0);
+        given(repository.insert(room)).willReturn(room);
+        given(mongoOperations.insert(any(RoomEvent.class))).willThrow(new IllegalStateException());
+        //when
+        expectThrows(IllegalStateException.class, () -> store.create(room));
+        //then
+        verify(mongoOperations).remove(any(Query.class), eq(Room.class));
+    }
+
+    @Test
+    public void joinShouldSnapshotStructuralChanges() {
+        //given
+        given(repository.findById(roomId)).willReturn(Optional.of(snapshot(2)));
+        given(mongoOperations.find(any(Query.class), eq(RoomEvent.class))).willReturn(List.of());
+        //when
+        store.join(roomId, "testEnemy", List.of());
+        //then
+        verify(mongoOperations).findAndReplace(any(Query.class), any(Room.class));
+    }
+
+    @Test
+    public void joinShouldSnapshotOverLegacyRoomWithoutSequence() {
+        //given
+        given(repository.findById(roomId)).willReturn(Optional.of(snapshot(2)));
+        given(mongoOperations.find(any(Query.class), eq(RoomEvent.class))).willReturn(List.of());
+        ArgumentCaptor<Query> captor = ArgumentCaptor.forClass(Query.class);
+        //when
+        store.join(roomId, "testEnemy", List.of());
+        //then
+        verify(mongoOperations).findAndReplace(captor.capture(), any(Room.class));
+        assertEquals(captor.getValue().getQueryObject().get("$or"), List.of(
+                new Document("sequence", new Document("$lt", 3L)),
+                new Document("sequence", new Document("$exists", false))
+        ));
+    }
+
+    @Test(expectedExceptions = DuplicateMessage.class)
+    public void appendShouldSignalMessageAlreadyInTheLog() {
+        //given
+        given(repository.findById(roomId)).willReturn(Optional.of(snapshot(2)));
+        given(mongoOperations.find(any(Query.class), eq(RoomEvent.class))).willReturn(List.of());
+        given(mongoOperations.insert(any(RoomEvent.class))).willThrow(new DuplicateKeyException("room_event_message_id"));
+        //when
+        store.markFleetSet(roomId, playerId);
+        //then
+    }
+
+    @Test(expectedExceptions = RoomRejection.class, expectedExceptionsMessageRegExp = "Room has changed, try again!")
+    public void appendShouldRejectWhenAnotherWriterTookTheSequence() {
+        //given
+        given(repository.findById(roomId)).willReturn(Optional.of(snapshot(2)));
+        given(mongoOperations.find(any(Query.class), eq(RoomEvent.class))).willReturn(List.of());
+        given(mongoOperations.insert(any(RoomEvent.class))).willThrow(new DuplicateKeyException("roomId_1_sequence_1"));
+        //when
+        store.markFleetSet(roomId, playerId);
+        //then
+    }
+
+    @Test(expectedExceptions = RoomRejection.class, expectedExceptionsMessageRegExp = "Couldn't find the game!")
+    public void markFleetSetShouldThrowWhenThereIsNoSnapshot() {
+        //given
+        given(repository.findById(roomId)).willReturn(Optional.empty());
+        //when
+        store.markFleetSet(roomId, playerId);
+        //then
+    }
+
+    private Room snapshot(long sequence) {
+        return Room.builder()
+                .id(roomId)
+                .players(List.of(new Player(playerId, false, false)))
+                .ownerId(playerId)
+                .started(false)
+                .sequence(sequence)
+                .build();
+    }
+
+    private RoomEvent event(long sequence, RoomEvent.Type type, String playerId) {
+        return RoomEvent.builder()
+                .roomId(roomId)
+                .sequence(sequence)
+                .type(type)
+                .playerId(playerId)
+                .at(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,118 @@
+package com.github.harboat.rooms;
+
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.testng.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+@Listeners({MockitoTestNGListener.class})
+public class LobbyReadModelTest {
+
+    @Mock
+    private RoomStore store;
+    private LobbyReadModel readModel;
+    private Room room;
+
+    @BeforeMethod
+    public void setUp() {
+        readModel = new LobbyReadModel(store, Duration.ofMinutes(30), Duration.ofMinutes(1), Duration.ofMinutes(5), 10);
+        room = Room.builder()
+                .id("testRoom")
+                .ownerId("testPlayer")
+                .players(new ArrayList<>(List.of(new Player("testPlayer", false, false))))
+                .started(false)
+                .build();
+    }
+
+    @Test
+    public void updateShouldKeepVersionWhenStateIsUnchanged() {
+        //given
+        readModel.update(room);
+        var before = readModel.find("testRoom").orElseThrow();
+        room.touch(Instant.now());
+        //when
+        readModel.update(room);
+        //then
+        assertEquals(readModel.find("testRoom").orElseThrow().version(), before.version());
+    }
+
+    @Test
+    public void updateShouldBumpVersionAndEtagOnChange() {
+        //given
+        readModel.update(room);
+        var before = readModel.find("testRoom").orElseThrow();
+        room.markPlayerFleetSet("testPlayer");
+        //when
+        readModel.update(room);
+        //then
+        var after = readModel.find("testRoom").orElseThrow();
+        assertTrue(after.version() > before.version());
+        assertNotEquals(readModel.etag(after), readModel.etag(before));
+        assertTrue(after.players().get(0).fleetSet());
+    }
+
+    @Test
+    public void deltaShouldOnlyCarryChangedPlayers() {
+        //given
+        room.addPlayer("testEnemy");
+        RoomView before = RoomView.of(room, 1);
+        room.markPlayerFleetSet("testEnemy");
+        //when
+        var delta = RoomView.of(room, 2).deltaFrom(before);
+        //then
+        assertEquals(delta.players(), List.of(new RoomView.PlayerState("testEnemy", false, true)));
+        assertNull(delta.started());
+    }
+
+    @Test
+    public void findShouldLoadRoomMissingFromMemory() {
+        //given
+        given(store.findById("testRoom")).willReturn(Optional.of(room));
+        //when
+        var actual = readModel.find("testRoom");
+        //then
+        assertTrue(actual.isPresent());
+        assertEquals(actual.get().ownerId(), "testPlayer");
+        readModel.find("testRoom");
+        verify(store, times(1)).findById("testRoom");
+    }
+
+    @Test
+    public void findShouldRevalidateStaleViewAgainstStore() {
+        //given
+        readModel = new LobbyReadModel(store, Duration.ofMinutes(30), Duration.ZERO, Duration.ofMinutes(5), 10);
+        Room changedElsewhere = Room.builder()
+                .id("testRoom")
+                .ownerId("testPlayer")
+                .players(new ArrayList<>(List.of(new Player("testPlayer", false, true))))
+                .started(false)
+                .build();
+        given(store.findById("testRoom")).willReturn(Optional.of(room), Optional.of(changedElsewhere));
+        var before = readModel.find("testRoom").orElseThrow();
+        //when
+        var actual = readModel.find("testRoom").orElseThrow();
+        //then
+        assertTrue(actual.version() > before.version());
+        assertTrue(actual.players().get(0).fleetSet());
+    }
+
+    @Test
+    public void subscribeShouldNotOpenStreamForUnknownRoom() {
+        //given
+        given(store.findById("testRoom")).willReturn(Optional.empty());
+        //when
+        var actual = readModel.subscribe("testRoom", null);
+        //then
+        assertTrue(actual.isEmpty());
+    }
+}
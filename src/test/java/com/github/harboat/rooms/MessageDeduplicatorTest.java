@@ -0,0 +1,68 @@
+package com.github.harboat.rooms;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+
+import static org.testng.Assert.*;
+
+public class MessageDeduplicatorTest {
+
+    private MessageDeduplicator deduplicator;
+
+    @BeforeMethod
+    public void setUp() {
+        deduplicator = new MessageDeduplicator(2, Duration.ofMinutes(10), 1000);
+    }
+
+    @Test
+    public void checkShouldTreatMessagesWithoutIdAsNew() {
+        //given
+        deduplicator.processed(null);
+        //when
+        var verdict = deduplicator.check(null, true);
+        //then
+        assertEquals(verdict, MessageDeduplicator.Verdict.NEW);
+    }
+
+    @Test
+    public void checkShouldTreatUnseenMessageAsNew() {
+        //when
+        var verdict = deduplicator.check("testMessage", false);
+        //then
+        assertEquals(verdict, MessageDeduplicator.Verdict.NEW);
+    }
+
+    @Test
+    public void checkShouldDeferUnseenRedeliveryToStore() {
+        //when
+        var verdict = deduplicator.check("testMessage", true);
+        //then
+        assertEquals(verdict, MessageDeduplicator.Verdict.UNKNOWN);
+    }
+
+    @Test
+    public void checkShouldRecognizeProcessedMessage() {
+        //given
+        deduplicator.processed("testMessage");
+        //when
+        var verdict = deduplicator.check("testMessage", true);
+        //then
+        assertEquals(verdict, MessageDeduplicator.Verdict.DUPLICATE);
+    }
+
+    @Test
+    public void processedShouldEvictEldestButKeepItInFilter() {
+        //given
+        deduplicator.processed("firstMessage");
+        deduplicator.processed("secondMessage");
+        deduplicator.processed("thirdMessage");
+        //when
+        var verdict = deduplicator.check("firstMessage", false);
+        //then
+        assertEquals(deduplicator.size(), 2);
+        assertEquals(verdict, MessageDeduplicator.Verdict.UNKNOWN);
+        assertEquals(deduplicator.check("thirdMessage", false), MessageDeduplicator.Verdict.DUPLICATE);
+    }
+}
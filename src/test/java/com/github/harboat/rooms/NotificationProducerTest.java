@@ -0,0 +1,78 @@
+package com.github.harboat.rooms;
+
+import com.github.harboat.clients.notification.EventType;
+import com.github.harboat.clients.notification.NotificationRequest;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+@Listeners({MockitoTestNGListener.class})
+public class NotificationProducerTest {
+
+    @Mock
+    private MessagePublisher publisher;
+    private NotificationProducer notificationProducer;
+    private List<String> players;
+
+    @BeforeMethod
+    public void setUp() {
+        notificationProducer = new NotificationProducer(publisher);
+        ReflectionTestUtils.setField(notificationProducer, "internalExchange", "testExchange");
+        ReflectionTestUtils.setField(notificationProducer, "notificationRoutingKey", "testNotification");
+        ReflectionTestUtils.setField(notificationProducer, "broadcastRoutingKey", "testBroadcast");
+        players = List.of("testOwner", "testEnemy");
+    }
+
+    @Test
+    public void broadcastShouldFanOutPerPlayerWhenDisabled() {
+        //given
+        ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+        //when
+        notificationProducer.broadcast("testRoom", players, EventType.PLAYER_READY, "testBody");
+        //then
+        verify(publisher, times(2)).publish(captor.capture(), eq("testExchange"), eq("testNotification"));
+        assertEquals(captor.getAllValues(), List.of(
+                new NotificationRequest<>("testOwner", EventType.PLAYER_READY, "testBody"),
+                new NotificationRequest<>("testEnemy", EventType.PLAYER_READY, "testBody")
+        ));
+    }
+
+    @Test
+    public void broadcastShouldPublishOnceWhenEnabled() {
+        //given
+        ReflectionTestUtils.setField(notificationProducer, "broadcast", true);
+        //when
+        notificationProducer.broadcast("testRoom", players, EventType.PLAYER_READY, "testBody");
+        //then
+        verify(publisher).publish(
+                new RoomBroadcast<>("testRoom", players, EventType.PLAYER_READY, "testBody"),
+                "testExchange",
+                "testBroadcast"
+        );
+        verifyNoMoreInteractions(publisher);
+    }
+
+    @Test
+    public void broadcastShouldSendPlainNotificationToSingleRecipient() {
+        //given
+        ReflectionTestUtils.setField(notificationProducer, "broadcast", true);
+        //when
+        notificationProducer.broadcast("testRoom", List.of("testOwner"), EventType.EXCEPTION, "testBody");
+        //then
+        verify(publisher).publish(
+                new NotificationRequest<>("testOwner", EventType.EXCEPTION, "testBody"),
+                "testExchange",
+                "testNotification"
+        );
+        verifyNoMoreInteractions(publisher);
+    }
+}
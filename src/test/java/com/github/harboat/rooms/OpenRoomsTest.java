@@ -0,0 +1,83 @@
+package com.github.harboat.rooms;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.testng.Assert.*;
+
+public class OpenRoomsTest {
+
+    private OpenRooms openRooms;
+
+    @BeforeMethod
+    public void setUp() {
+        openRooms = new OpenRooms();
+    }
+
+    @Test
+    public void claimShouldReturnOpenRoomOnlyOnce() {
+        //given
+        openRooms.open("testRoom", "testOwner");
+        //when
+        var first = openRooms.claim("testPlayer");
+        var second = openRooms.claim("testEnemy");
+        //then
+        assertEquals(first, Optional.of("testRoom"));
+        assertEquals(second, Optional.empty());
+    }
+
+    @Test
+    public void claimShouldSkipRoomsOwnedByThePlayer() {
+        //given
+        openRooms.open("ownRoom", "testPlayer");
+        openRooms.open("otherRoom", "testOwner");
+        //when
+        var actual = openRooms.claim("testPlayer");
+        //then
+        assertEquals(actual, Optional.of("otherRoom"));
+        assertEquals(openRooms.claim("testEnemy"), Optional.of("ownRoom"));
+    }
+
+    @Test
+    public void claimShouldSkipClosedRooms() {
+        //given
+        openRooms.open("closedRoom", "testOwner");
+        openRooms.open("openRoom", "testOwner");
+        openRooms.close("closedRoom");
+        //when
+        var actual = openRooms.claim("testPlayer");
+        //then
+        assertEquals(actual, Optional.of("openRoom"));
+    }
+
+    @Test
+    public void concurrentClaimsShouldNeverShareARoom() throws InterruptedException {
+        //given
+        int rooms = 1000;
+        IntStream.range(0, rooms).forEach(i -> openRooms.open("room" + i, "owner" + i));
+        Set<String> claimed = ConcurrentHashMap.newKeySet();
+        AtomicInteger claims = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        //when
+        IntStream.range(0, 2 * rooms).forEach(i -> executor.execute(() ->
+                openRooms.claim("player" + i).ifPresent(roomId -> {
+                    claims.incrementAndGet();
+                    claimed.add(roomId);
+                })
+        ));
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        //then
+        assertEquals(claims.get(), rooms);
+        assertEquals(claimed.size(), rooms);
+    }
+}
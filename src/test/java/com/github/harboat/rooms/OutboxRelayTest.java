@@ -0,0 +1,141 @@
+package com.github.harboat.rooms;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.harboat.clients.rooms.RoomGameStart;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.BDDMockito.*;
+
+@Listeners({MockitoTestNGListener.class})
+public class OutboxRelayTest {
+
+    @Mock
+    private MongoOperations mongoOperations;
+    @Mock
+    private RoomEventDispatcher dispatcher;
+    @Mock
+    private Leadership leadership;
+    private RoomOutbox outbox;
+    private OutboxRelay relay;
+    private String roomId;
+
+    @BeforeMethod
+    public void setUp() {
+        outbox = new RoomOutbox(true, new ObjectMapper());
+        relay = new OutboxRelay(mongoOperations, outbox, dispatcher, leadership, 10, Duration.ofMillis(100));
+        roomId = "testRoom";
+    }
+
+    @Test
+    public void relayShouldDispatchRecordedEventsAndRemoveThem() {
+        //given
+        RoomGameStart roomGameStart = new RoomGameStart(roomId);
+        Room room = Room.builder()
+                .id(roomId)
+                .outbox(new ArrayList<>(outbox.record(List.of(roomGameStart))))
+                .build();
+        given(leadership.isLeader()).willReturn(true);
+        given(mongoOperations.find(any(Query.class), eq(Room.class))).willReturn(List.of(room));
+        given(dispatcher.dispatch(roomGameStart)).willReturn(CompletableFuture.completedFuture(null));
+        //when
+        relay.relay();
+        //then
+        verify(dispatcher).dispatch(roomGameStart);
+        verify(mongoOperations).updateFirst(any(Query.class), any(Update.class), eq(Room.class));
+    }
+
+    @Test
+    public void relayShouldKeepEventsThatFailedToDispatch() {
+        //given
+        RoomGameStart roomGameStart = new RoomGameStart(roomId);
+        Room room = Room.builder()
+                .id(roomId)
+                .outbox(new ArrayList<>(outbox.record(List.of(roomGameStart))))
+                .build();
+        given(leadership.isLeader()).willReturn(true);
+        given(mongoOperations.find(any(Query.class), eq(Room.class))).willReturn(List.of(room));
+        willThrow(new IllegalStateException()).given(dispatcher).dispatch(roomGameStart);
+        //when
+        relay.relay();
+        //then
+        verify(mongoOperations, never()).updateFirst(any(Query.class), any(Update.class), eq(Room.class));
+    }
+
+    @Test
+    public void relayShouldKeepEventsThatBrokerDidNotConfirm() {
+        //given
+        RoomGameStart roomGameStart = new RoomGameStart(roomId);
+        Room room = Room.builder()
+                .id(roomId)
+                .outbox(new ArrayList<>(outbox.record(List.of(roomGameStart))))
+                .build();
+        given(leadership.isLeader()).willReturn(true);
+        given(mongoOperations.find(any(Query.class), eq(Room.class))).willReturn(List.of(room));
+        given(dispatcher.dispatch(roomGameStart)).willReturn(CompletableFuture.failedFuture(new IllegalStateException("nack")));
+        //when
+        relay.relay();
+        //then
+        verify(mongoOperations, never()).updateFirst(any(Query.class), any(Update.class), eq(Room.class));
+    }
+
+    @Test
+    public void relayShouldKeepEventsWhoseConfirmTimedOut() {
+        //given
+        RoomGameStart roomGameStart = new RoomGameStart(roomId);
+        Room room = Room.builder()
+                .id(roomId)
+                .outbox(new ArrayList<>(outbox.record(List.of(roomGameStart))))
+                .build();
+        given(leadership.isLeader()).willReturn(true);
+        given(mongoOperations.find(any(Query.class), eq(Room.class))).willReturn(List.of(room));
+        given(dispatcher.dispatch(roomGameStart)).willReturn(new CompletableFuture<>());
+        //when
+        relay.relay();
+        //then
+        verify(mongoOperations, never()).updateFirst(any(Query.class), any(Update.class), eq(Room.class));
+    }
+
+    @Test
+    public void relayShouldLeaveOutboxToLeader() {
+        //given
+        given(leadership.isLeader()).willReturn(false);
+        //when
+        relay.relay();
+        //then
+        verify(mongoOperations, never()).find(any(Query.class), eq(Room.class));
+        verify(dispatcher, never()).dispatch(any());
+    }
+
+    @Test
+    public void relayShouldDispatchAllRoomsBeforeWaitingForConfirms() {
+        //given
+        RoomGameStart first = new RoomGameStart("first");
+        RoomGameStart second = new RoomGameStart("second");
+        Room firstRoom = Room.builder().id("first").outbox(new ArrayList<>(outbox.record(List.of(first)))).build();
+        Room secondRoom = Room.builder().id("second").outbox(new ArrayList<>(outbox.record(List.of(second)))).build();
+        CompletableFuture<Void> firstConfirm = new CompletableFuture<>();
+        given(leadership.isLeader()).willReturn(true);
+        given(mongoOperations.find(any(Query.class), eq(Room.class))).willReturn(List.of(firstRoom, secondRoom));
+        given(dispatcher.dispatch(first)).willReturn(firstConfirm);
+        given(dispatcher.dispatch(second)).will(invocation -> {
+            firstConfirm.complete(null);
+            return CompletableFuture.completedFuture(null);
+        });
+        //when
+        relay.relay();
+        //then
+        verify(mongoOperations, times(2)).updateFirst(any(Query.class), any(Update.class), eq(Room.class));
+    }
+}
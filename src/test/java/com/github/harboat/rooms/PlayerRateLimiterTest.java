@@ -0,0 +1,74 @@
+package com.github.harboat.rooms;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.*;
+
+public class PlayerRateLimiterTest {
+
+    private PlayerRateLimiter rateLimiter;
+
+    @BeforeMethod
+    public void setUp() {
+        rateLimiter = new PlayerRateLimiter(true, 10, 3, PlayerRateLimiter.Policy.DROP);
+    }
+
+    @Test
+    public void tryAcquireShouldAllowBurstThenLimit() {
+        //when
+        boolean first = rateLimiter.tryAcquire("testPlayer", 0);
+        boolean second = rateLimiter.tryAcquire("testPlayer", 0);
+        boolean third = rateLimiter.tryAcquire("testPlayer", 0);
+        boolean fourth = rateLimiter.tryAcquire("testPlayer", 0);
+        //then
+        assertTrue(first && second && third);
+        assertFalse(fourth);
+    }
+
+    @Test
+    public void tryAcquireShouldRefillAtConfiguredRate() {
+        //given
+        for (int i = 0; i < 3; i++) rateLimiter.tryAcquire("testPlayer", 0);
+        //when
+        boolean tooEarly = rateLimiter.tryAcquire("testPlayer", TimeUnit.MILLISECONDS.toNanos(50));
+        boolean refilled = rateLimiter.tryAcquire("testPlayer", TimeUnit.MILLISECONDS.toNanos(100));
+        //then
+        assertFalse(tooEarly);
+        assertTrue(refilled);
+    }
+
+    @Test
+    public void tryAcquireShouldLimitPlayersIndependently() {
+        //given
+        for (int i = 0; i < 3; i++) rateLimiter.tryAcquire("testPlayer", 0);
+        //when
+        boolean actual = rateLimiter.tryAcquire("testEnemy", 0);
+        //then
+        assertTrue(actual);
+    }
+
+    @Test
+    public void tryAcquireShouldAllowEverythingWhenDisabled() {
+        //given
+        PlayerRateLimiter disabled = new PlayerRateLimiter(false, 1, 1, PlayerRateLimiter.Policy.DROP);
+        //when
+        boolean first = disabled.tryAcquire("testPlayer");
+        boolean second = disabled.tryAcquire("testPlayer");
+        //then
+        assertTrue(first && second);
+    }
+
+    @Test
+    public void evictIdleShouldDropRefilledBuckets() {
+        //given
+        rateLimiter.tryAcquire("testPlayer", 0);
+        rateLimiter.tryAcquire("testEnemy", TimeUnit.SECONDS.toNanos(1));
+        //when
+        rateLimiter.evictIdle(TimeUnit.MILLISECONDS.toNanos(500));
+        //then
+        assertEquals(rateLimiter.size(), 1);
+    }
+}
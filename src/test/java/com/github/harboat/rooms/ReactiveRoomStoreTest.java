@@ -0,0 +1,95 @@
+package com.github.harboat.rooms;
+
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.testng.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+@Listeners({MockitoTestNGListener.class})
+public class ReactiveRoomStoreTest {
+
+    @Mock
+    private ReactiveRoomRepository repository;
+    private ReactiveRoomStore store;
+    private String roomId;
+    private String playerId;
+
+    @BeforeMethod
+    public void setUp() {
+        store = new ReactiveRoomStore(repository);
+        roomId = "testRoom";
+        playerId = "testPlayer";
+    }
+
+    @Test
+    public void markFleetSetShouldReturnUpdatedRoomWithoutReadingIt() {
+        //given
+        Room room = Room.builder().id(roomId).build();
+        given(repository.markFleetSet(roomId, playerId, null)).willReturn(Mono.just(room));
+        //when
+        var actual = store.markFleetSet(roomId, playerId).block();
+        //then
+        verify(repository, never()).findById(anyString());
+        assertSame(actual, room);
+    }
+
+    @Test
+    public void markFleetSetShouldRecordMessageIdFromSubscriberContext() {
+        //given
+        Room room = Room.builder().id(roomId).build();
+        given(repository.markFleetSet(roomId, playerId, "testMessage")).willReturn(Mono.just(room));
+        //when
+        var actual = store.markFleetSet(roomId, playerId)
+                .contextWrite(context -> context.put(ReactiveRoomStore.MESSAGE_ID, "testMessage"))
+                .block();
+        //then
+        assertSame(actual, room);
+    }
+
+    @Test(expectedExceptions = RoomRejection.class, expectedExceptionsMessageRegExp = "Couldn't find the room!")
+    public void joinShouldFailWhenThereIsNoRoomWithThisId() {
+        //given
+        given(repository.addPlayer(roomId, playerId, List.of(), null)).willReturn(Mono.empty());
+        given(repository.findById(roomId)).willReturn(Mono.empty());
+        //when
+        store.join(roomId, playerId, List.of()).block();
+        //then
+    }
+
+    @Test(expectedExceptions = RoomRejection.class, expectedExceptionsMessageRegExp = "Player fleet is not set yet, you can't change readiness!")
+    public void changeReadinessShouldReportWhyGuardRejectedTheUpdate() {
+        //given
+        Room room = Room.builder()
+                .id(roomId)
+                .players(List.of(new Player(playerId, false, false)))
+                .build();
+        given(repository.toggleReadiness(roomId, playerId, null)).willReturn(Mono.empty());
+        given(repository.findById(roomId)).willReturn(Mono.just(room));
+        //when
+        store.changeReadiness(roomId, playerId).block();
+        //then
+    }
+
+    @Test(expectedExceptions = RoomRejection.class, expectedExceptionsMessageRegExp = "Room has changed, try again!")
+    public void startShouldFailWhenRoomChangedBetweenUpdateAndDiagnosis() {
+        //given
+        Room room = Room.builder()
+                .id(roomId)
+                .ownerId(playerId)
+                .players(List.of(new Player(playerId, true, true), new Player("testEnemy", true, true)))
+                .started(false)
+                .build();
+        given(repository.markStarted(roomId, playerId, List.of(), null)).willReturn(Mono.empty());
+        given(repository.findById(roomId)).willReturn(Mono.just(room));
+        //when
+        store.start(roomId, playerId, List.of()).block();
+        //then
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.harboat.rooms;
+
+import com.github.harboat.clients.rooms.ChangePlayerReadiness;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class ReadinessCoalescerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReadinessCoalescer coalescer;
+    private ChangePlayerReadiness ownerReadiness;
+    private ChangePlayerReadiness enemyReadiness;
+
+    @BeforeMethod
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        coalescer = new ReadinessCoalescer(Duration.ofMillis(100), true, meterRegistry);
+        ownerReadiness = new ChangePlayerReadiness("testRoom", "testOwner");
+        enemyReadiness = new ChangePlayerReadiness("testRoom", "testEnemy");
+    }
+
+    @Test
+    public void drainShouldKeepOnlyNetToggleWithItsLastMessage() {
+        //given
+        coalescer.offer(ownerReadiness, "first", 0);
+        coalescer.offer(ownerReadiness, "second", 1);
+        coalescer.offer(ownerReadiness, "third", 2);
+        coalescer.offer(enemyReadiness, "fourth", 3);
+        coalescer.offer(enemyReadiness, "fifth", 4);
+        //when
+        var actual = coalescer.drain("testRoom");
+        //then
+        assertEquals(actual, List.of(new ReadinessCoalescer.Toggle(ownerReadiness, "third")));
+        assertEquals(meterRegistry.counter("rooms.readiness.coalesced").count(), 4.0);
+        assertEquals(coalescer.size(), 0);
+    }
+
+    @Test
+    public void dueRoomsShouldReturnRoomsWhoseWindowElapsedSinceFirstToggle() {
+        //given
+        long window = Duration.ofMillis(100).toNanos();
+        coalescer.offer(ownerReadiness, "first", 0);
+        coalescer.offer(ownerReadiness, "second", window - 1);
+        coalescer.offer(new ChangePlayerReadiness("otherRoom", "testOwner"), "third", window - 1);
+        //when
+        var actual = coalescer.dueRooms(window);
+        //then
+        assertEquals(actual, List.of("testRoom"));
+    }
+
+    @Test
+    public void drainShouldReturnNothingForRoomWithoutToggles() {
+        //given
+        //when
+        var actual = coalescer.drain("testRoom");
+        //then
+        assertTrue(actual.isEmpty());
+    }
+
+    @Test
+    public void coalescerShouldBeDisabledWithoutWindow() {
+        //given
+        ReadinessCoalescer disabled = new ReadinessCoalescer(Duration.ZERO, false, meterRegistry);
+        //when
+        boolean actual = disabled.isEnabled();
+        //then
+        assertFalse(actual);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void constructorShouldRejectWindowWithoutPartitions() {
+        //when
+        new ReadinessCoalescer(Duration.ofMillis(100), false, meterRegistry);
+        //then
+    }
+}
@@ -0,0 +1,148 @@
+package com.github.harboat.rooms;
+
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.testng.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+@Listeners({MockitoTestNGListener.class})
+public class RoomCacheTest {
+
+    @Mock
+    private RoomRepository repository;
+    @Mock
+    private MongoOperations mongoOperations;
+    @Mock
+    private BulkOperations bulkOperations;
+    private RoomCache cache;
+    private String roomId;
+    private String playerId;
+
+    @BeforeMethod
+    public void setUp() {
+        cache = new RoomCache(repository, mongoOperations, true, 2, Duration.ofMinutes(1), 100);
+        roomId = "testRoom";
+        playerId = "testPlayer";
+    }
+
+    @Test
+    public void findByIdShouldServeSecondReadFromMemory() {
+        //given
+        Room room = room(roomId);
+        given(repository.findById(roomId)).willReturn(Optional.of(room));
+        //when
+        cache.findById(roomId);
+        var actual = cache.findById(roomId);
+        //then
+        verify(repository, times(1)).findById(roomId);
+        assertSame(actual.orElseThrow(), room);
+    }
+
+    @Test
+    public void saveShouldNotWriteToRepositoryBeforeFlush() {
+        //given
+        Room room = room(roomId);
+        //when
+        cache.save(room);
+        //then
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    public void flushShouldWriteSnapshotOfSavedRoom() {
+        //given
+        Room room = room(roomId);
+        cache.save(room);
+        //when
+        cache.flush(roomId);
+        //then
+        verify(mongoOperations).upsert(any(Query.class), any(Update.class), eq(Room.class));
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    public void flushShouldPushOutboxEventsOnlyOnce() {
+        //given
+        Room room = room(roomId);
+        OutboxEvent event = new OutboxEvent("testEvent", "testType", "{}");
+        cache.save(room, List.of(event));
+        ArgumentCaptor<Update> captor = ArgumentCaptor.forClass(Update.class);
+        //when
+        cache.flush(roomId);
+        cache.save(room);
+        cache.flush(roomId);
+        verify(mongoOperations, times(2)).upsert(any(Query.class), captor.capture(), eq(Room.class));
+        var first = captor.getAllValues().get(0).getUpdateObject();
+        var second = captor.getAllValues().get(1).getUpdateObject();
+        //then
+        assertTrue(first.containsKey("$push"));
+        assertFalse(second.containsKey("$push"));
+    }
+
+    @Test
+    public void flushPendingShouldWriteDirtyRoomsInOneBulk() {
+        //given
+        cache.save(room(roomId));
+        cache.save(room("otherRoom"));
+        given(mongoOperations.bulkOps(BulkOperations.BulkMode.UNORDERED, Room.class)).willReturn(bulkOperations);
+        //when
+        cache.flushPending();
+        cache.flushPending();
+        //then
+        verify(bulkOperations, times(2)).upsert(any(Query.class), any(Update.class));
+        verify(bulkOperations, times(1)).execute();
+    }
+
+    @Test
+    public void findByIdShouldReturnPendingStateOfEvictedRoom() {
+        //given
+        Room room = room(roomId);
+        room.markPlayerFleetSet(playerId);
+        cache.save(room);
+        cache.save(room("secondRoom"));
+        cache.save(room("thirdRoom"));
+        //when
+        var actual = cache.findById(roomId);
+        //then
+        verify(repository, never()).findById(any());
+        assertEquals(cache.size(), 2);
+        assertTrue(actual.orElseThrow().isPlayerFleetSet(playerId));
+    }
+
+    @Test
+    public void holdsShouldCoverPendingWritesOfEvictedRoom() {
+        //given
+        cache.save(room(roomId));
+        cache.evict(roomId);
+        //when
+        boolean actual = cache.holds(roomId);
+        //then
+        assertTrue(actual);
+    }
+
+    private Room room(String id) {
+        List<Player> players = new ArrayList<>() {{
+            add(new Player(playerId, false, false));
+        }};
+        return Room.builder()
+                .id(id)
+                .ownerId(playerId)
+                .players(players)
+                .started(false)
+                .build();
+    }
+}
@@ -0,0 +1,251 @@
+package com.github.harboat.rooms;
+
+import com.github.harboat.clients.notification.EventType;
+import com.github.harboat.clients.notification.NotificationRequest;
+import com.github.harboat.clients.rooms.ChangePlayerReadiness;
+import com.github.harboat.clients.rooms.MarkStart;
+import com.github.harboat.clients.rooms.RoomPlayerJoin;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+
+import static org.testng.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+@Listeners({MockitoTestNGListener.class})
+public class RoomCommandHandlerTest {
+
+    @Mock
+    private RoomService service;
+    @Mock
+    private NotificationProducer notificationProducer;
+    @Mock
+    private MessageDeduplicator deduplicator;
+    @Mock
+    private RoomRepository repository;
+    private UnknownRooms unknownRooms;
+    private SimpleMeterRegistry meterRegistry;
+    private RoomCommandHandler handler;
+
+    @BeforeMethod
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        unknownRooms = new UnknownRooms(Duration.ofMinutes(1), 100);
+        handler = handler(Duration.ZERO);
+    }
+
+    @Test
+    public void handleShouldTimeCommandByTypeAndOutcome() {
+        //given
+        MarkStart markStart = new MarkStart("testRoom", "testPlayer");
+        //when
+        handler.handle(markStart);
+        //then
+        var timer = meterRegistry.find("rooms.commands").tags("type", "MarkStart", "outcome", "ok").timer();
+        assertNotNull(timer);
+        assertEquals(timer.count(), 1);
+    }
+
+    @Test
+    public void handleShouldTagRejectedCommandAndCountItsErrorCode() {
+        //given
+        ChangePlayerReadiness playerReadiness = new ChangePlayerReadiness("testRoom", "testPlayer");
+        willThrow(RoomError.PLAYER_NOT_IN_GAME.reject()).given(service).changeReady(playerReadiness);
+        //when
+        handler.handle(playerReadiness);
+        //then
+        var timer = meterRegistry.find("rooms.commands").tags("type", "ChangePlayerReadiness", "outcome", "bad_request").timer();
+        assertNotNull(timer);
+        assertEquals(timer.count(), 1);
+        assertEquals(meterRegistry.counter("rooms.commands.rejections", "code", "PLAYER_NOT_IN_GAME").count(), 1.0);
+    }
+
+    @Test
+    public void handleShouldTagMissingRoomAsNotFound() {
+        //given
+        MarkStart markStart = new MarkStart("testRoom", "testPlayer");
+        willThrow(RoomError.GAME_NOT_FOUND.reject()).given(service).markStart(markStart);
+        //when
+        handler.handle(markStart);
+        //then
+        var timer = meterRegistry.find("rooms.commands").tags("type", "MarkStart", "outcome", "not_found").timer();
+        assertNotNull(timer);
+        assertEquals(timer.count(), 1);
+    }
+
+    @Test
+    public void handleShouldNotifyPlayerWithCompactRejectionNotice() {
+        //given
+        ChangePlayerReadiness playerReadiness = new ChangePlayerReadiness("testRoom", "testPlayer");
+        willThrow(RoomError.FLEET_NOT_SET.reject()).given(service).changeReady(playerReadiness);
+        //when
+        handler.handle(playerReadiness);
+        //then
+        verify(notificationProducer).sendNotification(new NotificationRequest<>(
+                "testPlayer",
+                EventType.EXCEPTION,
+                new RejectionNotice(RoomError.FLEET_NOT_SET, 400, "Player fleet is not set yet, you can't change readiness!")
+        ));
+    }
+
+    @Test
+    public void handleShouldSkipMessageSeenByDeduplicator() {
+        //given
+        MarkStart markStart = new MarkStart("testRoom", "testPlayer");
+        given(deduplicator.check("testMessage", true)).willReturn(MessageDeduplicator.Verdict.DUPLICATE);
+        //when
+        handler.handle(markStart, "testMessage", true);
+        //then
+        verifyNoInteractions(service);
+        assertEquals(meterRegistry.counter("rooms.commands.duplicates", "type", "MarkStart").count(), 1.0);
+    }
+
+    @Test
+    public void resolveShouldNotClaimRoomForRedeliveredQuickJoin() {
+        //given
+        QuickRoomJoin quickRoomJoin = new QuickRoomJoin("testPlayer");
+        given(deduplicator.check("testMessage", true)).willReturn(MessageDeduplicator.Verdict.DUPLICATE);
+        //when
+        var actual = handler.resolve(quickRoomJoin, "testMessage", true);
+        //then
+        verify(service, never()).resolveQuickJoin(any());
+        assertSame(actual, quickRoomJoin);
+    }
+
+    @Test
+    public void resolveShouldClaimRoomForNewQuickJoin() {
+        //given
+        QuickRoomJoin quickRoomJoin = new QuickRoomJoin("testPlayer");
+        RoomPlayerJoin roomPlayerJoin = new RoomPlayerJoin("testRoom", "testPlayer");
+        given(deduplicator.check("testMessage", false)).willReturn(MessageDeduplicator.Verdict.NEW);
+        given(service.resolveQuickJoin(quickRoomJoin)).willReturn(roomPlayerJoin);
+        //when
+        var actual = handler.resolve(quickRoomJoin, "testMessage", false);
+        //then
+        assertSame(actual, roomPlayerJoin);
+    }
+
+    @Test
+    public void handleShouldSkipMessageAlreadyPersistedOnRoom() {
+        //given
+        MarkStart markStart = new MarkStart("testRoom", "testPlayer");
+        given(deduplicator.check("testMessage", true)).willReturn(MessageDeduplicator.Verdict.UNKNOWN);
+        given(repository.existsByProcessedMessageIds("testMessage")).willReturn(true);
+        //when
+        handler.handle(markStart, "testMessage", true);
+        //then
+        verifyNoInteractions(service);
+    }
+
+    @Test
+    public void handleShouldProcessUnseenMessageAndRememberIt() {
+        //given
+        MarkStart markStart = new MarkStart("testRoom", "testPlayer");
+        given(deduplicator.check("testMessage", true)).willReturn(MessageDeduplicator.Verdict.UNKNOWN);
+        given(repository.existsByProcessedMessageIds("testMessage")).willReturn(false);
+        //when
+        handler.handle(markStart, "testMessage", true);
+        //then
+        verify(service).markStart(markStart);
+        verify(deduplicator).processed("testMessage");
+    }
+
+    @Test
+    public void handleShouldTreatMessageAlreadyAppliedByStoreAsDuplicate() {
+        //given
+        MarkStart markStart = new MarkStart("testRoom", "testPlayer");
+        given(deduplicator.check("testMessage", true)).willReturn(MessageDeduplicator.Verdict.UNKNOWN);
+        given(repository.existsByProcessedMessageIds("testMessage")).willReturn(false);
+        willThrow(new DuplicateMessage("testMessage")).given(service).markStart(markStart);
+        //when
+        handler.handle(markStart, "testMessage", true);
+        //then
+        verify(deduplicator).processed("testMessage");
+        verifyNoInteractions(notificationProducer);
+        assertEquals(meterRegistry.counter("rooms.commands.duplicates", "type", "MarkStart").count(), 1.0);
+    }
+
+    @Test
+    public void handleShouldNotRememberMessageWhenProcessingFails() {
+        //given
+        MarkStart markStart = new MarkStart("testRoom", "testPlayer");
+        given(deduplicator.check("testMessage", false)).willReturn(MessageDeduplicator.Verdict.NEW);
+        willThrow(new IllegalStateException("Mongo is down")).given(service).markStart(markStart);
+        //when
+        expectThrows(IllegalStateException.class, () -> handler.handle(markStart, "testMessage", false));
+        //then
+        verify(deduplicator, never()).processed(any());
+    }
+
+    @Test
+    public void handleShouldDropCommandsForRoomThatWasNotFound() {
+        //given
+        ChangePlayerReadiness playerReadiness = new ChangePlayerReadiness("testRoom", "testPlayer");
+        willThrow(RoomError.GAME_NOT_FOUND.reject()).given(service).changeReady(playerReadiness);
+        handler.handle(playerReadiness);
+        //when
+        handler.handle(playerReadiness);
+        //then
+        verify(service, times(1)).changeReady(playerReadiness);
+        verify(notificationProducer, times(1)).sendNotification(any(NotificationRequest.class));
+        assertEquals(meterRegistry.counter("rooms.commands.dropped",
+                "type", "ChangePlayerReadiness", "reason", "unknown-room").count(), 1.0);
+    }
+
+    @Test
+    public void handleShouldFoldReadinessTogglesBeforeStart() {
+        //given
+        handler = handler(Duration.ofSeconds(1));
+        ChangePlayerReadiness playerReadiness = new ChangePlayerReadiness("testRoom", "testPlayer");
+        MarkStart markStart = new MarkStart("testRoom", "testPlayer");
+        handler.handle(playerReadiness);
+        handler.handle(playerReadiness);
+        handler.handle(playerReadiness);
+        //when
+        handler.handle(markStart);
+        //then
+        InOrder inOrder = inOrder(service);
+        inOrder.verify(service).changeReady(playerReadiness);
+        inOrder.verify(service).markStart(markStart);
+        verifyNoMoreInteractions(service);
+    }
+
+    @Test
+    public void flushReadinessShouldSkipTogglesThatCancelOut() {
+        //given
+        handler = handler(Duration.ofSeconds(1));
+        ChangePlayerReadiness playerReadiness = new ChangePlayerReadiness("testRoom", "testPlayer");
+        handler.handle(playerReadiness);
+        handler.handle(playerReadiness);
+        //when
+        handler.flushReadiness("testRoom");
+        //then
+        verifyNoInteractions(service);
+        assertEquals(meterRegistry.counter("rooms.readiness.coalesced").count(), 2.0);
+    }
+
+    @Test
+    public void rateLimitedShouldNotifyPlayerOnlyWhenRejecting() {
+        //given
+        MarkStart markStart = new MarkStart("testRoom", "testPlayer");
+        //when
+        handler.rateLimited(markStart, PlayerRateLimiter.Policy.DROP);
+        handler.rateLimited(markStart, PlayerRateLimiter.Policy.REJECT);
+        //then
+        verify(notificationProducer, times(1)).sendNotification(any(NotificationRequest.class));
+        verifyNoInteractions(service);
+        assertEquals(meterRegistry.counter("rooms.commands.dropped",
+                "type", "MarkStart", "reason", "rate-limited").count(), 2.0);
+    }
+
+    private RoomCommandHandler handler(Duration coalesceWindow) {
+        return new RoomCommandHandler(service, notificationProducer, meterRegistry, deduplicator, repository, unknownRooms,
+                new ReadinessCoalescer(coalesceWindow, true, meterRegistry), new RoomLanes(false, 0, 1, meterRegistry));
+    }
+}
@@ -0,0 +1,43 @@
+package com.github.harboat.rooms;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.*;
+
+public class RoomErrorTest {
+
+    @Test
+    public void rejectShouldReuseStacklessException() {
+        //given
+        RoomError error = RoomError.ROOM_FULL;
+        //when
+        RoomRejection first = error.reject();
+        RoomRejection second = error.reject();
+        //then
+        assertSame(first, second);
+        assertEquals(first.getStackTrace().length, 0);
+        assertEquals(first.getMessage(), "Room is full!");
+        assertSame(first.code(), error);
+    }
+
+    @Test
+    public void rejectionShouldIgnoreSuppressedExceptions() {
+        //given
+        RoomRejection rejection = RoomError.ROOM_CHANGED.reject();
+        //when
+        rejection.addSuppressed(new IllegalStateException("blocked"));
+        //then
+        assertEquals(rejection.getSuppressed().length, 0);
+    }
+
+    @Test
+    public void noticeShouldCarryCodeStatusAndMessage() {
+        //given
+        RoomError error = RoomError.GAME_NOT_FOUND;
+        //when
+        RejectionNotice notice = error.notice();
+        //then
+        assertEquals(notice, new RejectionNotice(RoomError.GAME_NOT_FOUND, 404, "Couldn't find the game!"));
+        assertTrue(error.isNotFound());
+    }
+}
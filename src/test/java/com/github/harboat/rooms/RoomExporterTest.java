@@ -0,0 +1,80 @@
+package com.github.harboat.rooms;
+
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonDocument;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.testng.annotations.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.testng.Assert.*;
+
+public class RoomExporterTest {
+
+    @Test
+    public void filterShouldMatchEverythingWithoutCriteria() {
+        //given
+        RoomExportRequest request = new RoomExportRequest(null, null, null, null, null, null);
+        //when
+        var actual = render(RoomExporter.filter(request));
+        //then
+        assertTrue(actual.isEmpty());
+    }
+
+    @Test
+    public void filterShouldResumeAfterLastSeenId() {
+        //given
+        String lastSeen = new ObjectId().toHexString();
+        RoomExportRequest request = new RoomExportRequest(false, null, lastSeen, null, null, null);
+        //when
+        var actual = render(RoomExporter.filter(request)).toJson();
+        //then
+        assertTrue(actual.contains("started"));
+        assertTrue(actual.contains("$gt"));
+        assertTrue(actual.contains(lastSeen));
+    }
+
+    @Test
+    public void filterShouldTranslateCreationTimeToObjectIdBound() {
+        //given
+        Instant createdAfter = Instant.parse("2022-05-01T12:00:00Z");
+        RoomExportRequest request = new RoomExportRequest(null, createdAfter, null, null, null, null);
+        //when
+        var actual = render(RoomExporter.filter(request)).getDocument("_id").getObjectId("$gte").getValue();
+        //then
+        assertEquals(actual.getDate().toInstant(), createdAfter);
+        assertEquals(actual.toHexString().substring(8), "0000000000000000");
+    }
+
+    @Test
+    public void projectionShouldIncludeRequestedFields() {
+        //when
+        var actual = render(RoomExporter.projection(List.of("players", "started")));
+        //then
+        assertEquals(actual.keySet(), Set.of("players", "started"));
+    }
+
+    @Test
+    public void projectionShouldNeverIncludeInternalFields() {
+        //when
+        var actual = render(RoomExporter.projection(List.of("players", "outbox", "processedMessageIds.0")));
+        //then
+        assertEquals(actual.keySet(), Set.of("players"));
+    }
+
+    @Test
+    public void projectionShouldExcludeInternalFieldsByDefault() {
+        //when
+        var actual = render(RoomExporter.projection(null));
+        //then
+        assertEquals(actual.keySet(), Set.of("processedMessageIds", "outbox"));
+        assertEquals(actual.getInt32("outbox").getValue(), 0);
+    }
+
+    private static BsonDocument render(Bson bson) {
+        return bson.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+}
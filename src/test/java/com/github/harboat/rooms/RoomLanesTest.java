@@ -0,0 +1,79 @@
+package com.github.harboat.rooms;
+
+import com.rabbitmq.client.Channel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.testng.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+@Listeners({MockitoTestNGListener.class})
+public class RoomLanesTest {
+
+    @Mock
+    private Channel channel;
+    private RoomLanes lanes;
+
+    @BeforeMethod
+    public void setUp() {
+        lanes = new RoomLanes(true, 4, 2, new SimpleMeterRegistry());
+    }
+
+    @AfterMethod
+    public void tearDown() throws InterruptedException {
+        lanes.shutdown();
+    }
+
+    @Test
+    public void executeShouldRunTasksOfOneRoomInOrder() throws Exception {
+        //given
+        List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        //when
+        IntStream.range(0, 100).forEach(i -> lanes.execute("testRoom", () -> processed.add(i), channel, i));
+        lanes.shutdown();
+        //then
+        assertEquals(processed, IntStream.range(0, 100).boxed().toList());
+    }
+
+    @Test
+    public void executeShouldAckAfterTaskFinished() throws Exception {
+        //given
+        //when
+        lanes.execute("testRoom", () -> {}, channel, 7L);
+        lanes.shutdown();
+        //then
+        verify(channel).basicAck(7L, false);
+    }
+
+    @Test
+    public void executeShouldRequeueWhenTaskFailed() throws Exception {
+        //given
+        //when
+        lanes.execute("testRoom", () -> { throw new IllegalStateException(); }, channel, 7L);
+        lanes.shutdown();
+        //then
+        verify(channel).basicNack(7L, false, true);
+    }
+
+    @Test
+    public void executeShouldRunInlineWhenDisabled() {
+        //given
+        RoomLanes inline = new RoomLanes(false, 4, 2, new SimpleMeterRegistry());
+        List<Thread> threads = new ArrayList<>();
+        //when
+        inline.execute("testRoom", () -> threads.add(Thread.currentThread()), channel, 7L);
+        //then
+        assertEquals(threads, List.of(Thread.currentThread()));
+        verifyNoInteractions(channel);
+    }
+}
@@ -0,0 +1,144 @@
+package com.github.harboat.rooms;
+
+import com.github.harboat.clients.notification.EventType;
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.mongodb.UncategorizedMongoDbException;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.testng.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+@Listeners({MockitoTestNGListener.class})
+public class RoomLifecycleTest {
+
+    @Mock
+    private MongoOperations mongoOperations;
+    @Mock
+    private IndexOperations indexOperations;
+    @Mock
+    private RoomCache cache;
+    @Mock
+    private NotificationProducer notificationProducer;
+    private OpenRooms openRooms;
+    private String roomId;
+    private String playerId;
+
+    @BeforeMethod
+    public void setUp() {
+        openRooms = new OpenRooms();
+        roomId = "testRoom";
+        playerId = "testPlayer";
+    }
+
+    @Test
+    public void expireShouldEvictIdleLobbyAndNotifyItsPlayers() throws InterruptedException {
+        //given
+        RoomLifecycle lifecycle = lifecycle(Duration.ZERO, Duration.ofHours(1));
+        Room room = room(false);
+        openRooms.open(roomId, playerId);
+        lifecycle.track(room);
+        given(mongoOperations.exists(any(Query.class), eq(Room.class))).willReturn(true);
+        //when
+        Thread.sleep(20);
+        lifecycle.expire();
+        //then
+        verify(cache).evict(roomId);
+        verify(notificationProducer).broadcast(eq(roomId), eq(List.of(playerId)), eq(EventType.EXCEPTION), any());
+        assertEquals(openRooms.size(), 0);
+        assertEquals(lifecycle.tracked(), 0);
+    }
+
+    @Test
+    public void expireShouldEvictFinishedGameWithoutNotification() throws InterruptedException {
+        //given
+        RoomLifecycle lifecycle = lifecycle(Duration.ofHours(1), Duration.ZERO);
+        lifecycle.track(room(true));
+        //when
+        Thread.sleep(20);
+        lifecycle.expire();
+        //then
+        verify(cache).evict(roomId);
+        verify(notificationProducer, never()).broadcast(any(), any(), any(), any());
+        verify(notificationProducer, never()).sendNotification(any());
+    }
+
+    @Test
+    public void trackShouldPostponeExpiryOfActiveLobby() {
+        //given
+        RoomLifecycle lifecycle = lifecycle(Duration.ofHours(1), Duration.ofHours(1));
+        //when
+        lifecycle.track(room(false));
+        lifecycle.expire();
+        //then
+        verify(cache, never()).evict(any());
+        assertEquals(lifecycle.tracked(), 1);
+    }
+
+    @Test
+    public void expireShouldKeepLobbyThatWasTouchedElsewhere() throws InterruptedException {
+        //given
+        RoomLifecycle lifecycle = lifecycle(Duration.ZERO, Duration.ofHours(1));
+        openRooms.open(roomId, playerId);
+        lifecycle.track(room(false));
+        given(mongoOperations.exists(any(Query.class), eq(Room.class))).willReturn(false, true);
+        //when
+        Thread.sleep(20);
+        lifecycle.expire();
+        //then
+        verify(notificationProducer, never()).broadcast(any(), any(), any(), any());
+        assertEquals(openRooms.size(), 1);
+    }
+
+    @Test
+    public void ensureIndexesShouldRecreateIndexOnlyOnOptionsConflict() {
+        //given
+        RoomLifecycle lifecycle = lifecycle(Duration.ofMinutes(30), Duration.ofHours(24));
+        given(mongoOperations.indexOps(Room.class)).willReturn(indexOperations);
+        given(indexOperations.ensureIndex(any()))
+                .willThrow(new UncategorizedMongoDbException("conflict", new MongoCommandException(
+                        new BsonDocument("code", new BsonInt32(85)), new ServerAddress())))
+                .willReturn("lobby_ttl", "game_ttl");
+        //when
+        lifecycle.ensureIndexes();
+        //then
+        verify(indexOperations).dropIndex("lobby_ttl");
+    }
+
+    @Test(expectedExceptions = DataAccessResourceFailureException.class)
+    public void ensureIndexesShouldNotDropIndexOnOtherErrors() {
+        //given
+        RoomLifecycle lifecycle = lifecycle(Duration.ofMinutes(30), Duration.ofHours(24));
+        given(mongoOperations.indexOps(Room.class)).willReturn(indexOperations);
+        given(indexOperations.ensureIndex(any())).willThrow(new DataAccessResourceFailureException("timeout"));
+        //when
+        lifecycle.ensureIndexes();
+        //then
+    }
+
+    private RoomLifecycle lifecycle(Duration lobbyTimeout, Duration gameTimeout) {
+        return new RoomLifecycle(mongoOperations, cache, openRooms, notificationProducer, lobbyTimeout, gameTimeout, 1, 8);
+    }
+
+    private Room room(boolean started) {
+        return Room.builder()
+                .id(roomId)
+                .ownerId(playerId)
+                .players(List.of(new Player(playerId, false, false)))
+                .started(started)
+                .build();
+    }
+}
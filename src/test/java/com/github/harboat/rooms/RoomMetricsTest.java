@@ -0,0 +1,89 @@
+package com.github.harboat.rooms;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+@Listeners({MockitoTestNGListener.class})
+public class RoomMetricsTest {
+
+    @Mock
+    private MongoOperations mongoOperations;
+    @Mock
+    private DiscoveryClient discoveryClient;
+    @Mock
+    private ObjectProvider<Registration> registrationProvider;
+    @Mock
+    private Registration registration;
+    @Mock
+    private ServiceInstance other;
+    @Mock
+    private RoomCache cache;
+    @Mock
+    private OpenRooms openRooms;
+    @Mock
+    private RoomLifecycle lifecycle;
+    private MeterRegistry meterRegistry;
+    private RoomMetrics metrics;
+
+    @BeforeMethod
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        metrics = new RoomMetrics(meterRegistry, mongoOperations, new Leadership(discoveryClient, registrationProvider), cache, openRooms, lifecycle);
+        given(registrationProvider.getIfAvailable()).willReturn(registration);
+        given(registration.getServiceId()).willReturn("rooms");
+        given(registration.getInstanceId()).willReturn("rooms-b");
+    }
+
+    @Test
+    public void refreshStatesShouldGroupRoomsInOneAggregation() {
+        //given
+        given(discoveryClient.getInstances("rooms")).willReturn(List.of(registration));
+        given(mongoOperations.aggregate(any(Aggregation.class), eq(Room.class), eq(Document.class)))
+                .willReturn(new AggregationResults<>(List.of(
+                        state(false, false, 3),
+                        state(false, true, 2),
+                        state(true, true, 5)
+                ), new Document()));
+        //when
+        metrics.refreshStates();
+        //then
+        verify(mongoOperations, never()).count(any(), eq(Room.class));
+        assertEquals(meterRegistry.get("rooms.state").tag("state", "waiting").gauge().value(), 3.0);
+        assertEquals(meterRegistry.get("rooms.state").tag("state", "full").gauge().value(), 2.0);
+        assertEquals(meterRegistry.get("rooms.state").tag("state", "started").gauge().value(), 5.0);
+    }
+
+    @Test
+    public void refreshStatesShouldSkipQueryWhenAnotherInstanceLeads() {
+        //given
+        given(other.getInstanceId()).willReturn("rooms-a");
+        given(discoveryClient.getInstances("rooms")).willReturn(List.of(registration, other));
+        //when
+        metrics.refreshStates();
+        //then
+        verify(mongoOperations, never()).aggregate(any(Aggregation.class), eq(Room.class), eq(Document.class));
+        assertTrue(meterRegistry.find("rooms.state").gauges().isEmpty());
+    }
+
+    private static Document state(boolean started, boolean full, int count) {
+        return new Document("_id", new Document("started", started).append("full", full)).append("count", count);
+    }
+}
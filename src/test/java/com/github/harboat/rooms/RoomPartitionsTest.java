@@ -0,0 +1,141 @@
+package com.github.harboat.rooms;
+
+import com.github.harboat.clients.rooms.RoomCreate;
+import com.github.harboat.clients.rooms.RoomPlayerJoin;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.cloud.client.serviceregistry.Registration;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.testng.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+@Listeners({MockitoTestNGListener.class})
+public class RoomPartitionsTest {
+
+    private static final int PARTITIONS = 64;
+
+    @Mock
+    private ConnectionFactory connectionFactory;
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+    @Mock
+    private MessageConverter messageConverter;
+    @Mock
+    private RoomCommandHandler handler;
+    @Mock
+    private PlayerRateLimiter rateLimiter;
+    @Mock
+    private RoomCache cache;
+    @Mock
+    private DiscoveryClient discoveryClient;
+    @Mock
+    private Registration registration;
+    private RoomPartitions partitions;
+
+    @BeforeMethod
+    public void setUp() {
+        partitions = new RoomPartitions(connectionFactory, rabbitTemplate, messageConverter, handler, rateLimiter, cache,
+                discoveryClient, registration, "testExchange", "testQueue-", PARTITIONS, 10);
+    }
+
+    @Test
+    public void assignShouldGiveEveryPartitionToExactlyOneMember() {
+        //given
+        List<String> members = List.of("rooms-a", "rooms-b", "rooms-c");
+        //when
+        Set<Integer> all = new HashSet<>();
+        int total = 0;
+        for (String member : members) {
+            Set<Integer> assigned = RoomPartitions.assign(members, member, PARTITIONS);
+            all.addAll(assigned);
+            total += assigned.size();
+        }
+        //then
+        assertEquals(all.size(), PARTITIONS);
+        assertEquals(total, PARTITIONS);
+    }
+
+    @Test
+    public void assignShouldOnlyMovePartitionsToJoiningMember() {
+        //given
+        List<String> before = List.of("rooms-a", "rooms-b");
+        List<String> after = List.of("rooms-a", "rooms-b", "rooms-c");
+        //when
+        Set<Integer> ownedBefore = RoomPartitions.assign(before, "rooms-a", PARTITIONS);
+        Set<Integer> ownedAfter = RoomPartitions.assign(after, "rooms-a", PARTITIONS);
+        //then
+        assertTrue(ownedBefore.containsAll(ownedAfter));
+        assertTrue(ownedAfter.size() < ownedBefore.size());
+    }
+
+    @Test
+    public void assignShouldClaimNothingBeforeRegistration() {
+        //when
+        Set<Integer> assigned = RoomPartitions.assign(List.of("rooms-a"), "rooms-b", PARTITIONS);
+        //then
+        assertTrue(assigned.isEmpty());
+    }
+
+    @Test
+    public void routeShouldPublishResolvedQuickJoinUnderItsRoomKey() {
+        //given
+        Message message = message();
+        Message resolved = message();
+        QuickRoomJoin quickRoomJoin = new QuickRoomJoin("testPlayer");
+        RoomPlayerJoin roomPlayerJoin = new RoomPlayerJoin("testRoom", "testPlayer");
+        given(messageConverter.fromMessage(message)).willReturn(quickRoomJoin);
+        given(handler.resolve(quickRoomJoin, "testMessage", false)).willReturn(roomPlayerJoin);
+        given(messageConverter.toMessage(roomPlayerJoin, message.getMessageProperties())).willReturn(resolved);
+        //when
+        partitions.route(message);
+        //then
+        verify(rabbitTemplate).send("testExchange", "testRoom", resolved);
+    }
+
+    @Test
+    public void routeShouldDropQuickJoinThatWasAlreadyProcessed() {
+        //given
+        Message message = message();
+        QuickRoomJoin quickRoomJoin = new QuickRoomJoin("testPlayer");
+        given(messageConverter.fromMessage(message)).willReturn(quickRoomJoin);
+        given(handler.resolve(quickRoomJoin, "testMessage", false)).willReturn(quickRoomJoin);
+        //when
+        partitions.route(message);
+        //then
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    @Test
+    public void consumeShouldNotKeepCreatedRoomInCreatorPartitionCache() {
+        //given
+        Message message = message();
+        RoomCreate roomCreate = new RoomCreate("testPlayer");
+        given(messageConverter.fromMessage(message)).willReturn(roomCreate);
+        given(rateLimiter.tryAcquire("testPlayer")).willReturn(true);
+        given(handler.resolve(roomCreate, "testMessage", false)).willReturn(roomCreate);
+        //when
+        partitions.consume(0, message);
+        //then
+        verify(handler).handle(roomCreate, "testMessage", false);
+        verify(cache).evictActiveByPlayer("testPlayer");
+    }
+
+    private static Message message() {
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId("testMessage");
+        return new Message(new byte[0], properties);
+    }
+}
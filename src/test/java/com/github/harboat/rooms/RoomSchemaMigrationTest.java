@@ -0,0 +1,54 @@
+package com.github.harboat.rooms;
+
+import com.mongodb.client.result.UpdateResult;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.mongodb.core.query.UpdateDefinition;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import static org.mockito.BDDMockito.*;
+
+@Listeners({MockitoTestNGListener.class})
+public class RoomSchemaMigrationTest {
+
+    @Mock
+    private MongoOperations mongoOperations;
+    @Mock
+    private IndexOperations indexOperations;
+    private RoomSchemaMigration migration;
+
+    @BeforeMethod
+    public void setUp() {
+        migration = new RoomSchemaMigration(mongoOperations);
+        given(mongoOperations.indexOps(Room.class)).willReturn(indexOperations);
+    }
+
+    @Test
+    public void migrateShouldSkipScansOnceMigrationsAreRecorded() {
+        //given
+        given(mongoOperations.exists(any(Query.class), eq("roomMigrations"))).willReturn(true);
+        //when
+        migration.migrate();
+        //then
+        verify(mongoOperations, never()).updateMulti(any(Query.class), any(UpdateDefinition.class), eq(Room.class));
+        verify(mongoOperations, never()).upsert(any(Query.class), any(Update.class), eq("roomMigrations"));
+    }
+
+    @Test
+    public void migrateShouldRecordCompletedMigrations() {
+        //given
+        given(mongoOperations.exists(any(Query.class), eq("roomMigrations"))).willReturn(false);
+        given(mongoOperations.updateMulti(any(Query.class), any(UpdateDefinition.class), eq(Room.class)))
+                .willReturn(UpdateResult.acknowledged(0, 0L, null));
+        //when
+        migration.migrate();
+        //then
+        verify(mongoOperations, times(2)).upsert(any(Query.class), any(Update.class), eq("roomMigrations"));
+    }
+}
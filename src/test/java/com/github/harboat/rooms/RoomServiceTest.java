@@ -2,18 +2,23 @@ package com.github.harboat.rooms;
 
 import com.github.harboat.clients.configuration.ConfigurationCreate;
 import com.github.harboat.clients.configuration.ConfigurationPlayerJoin;
-import com.github.harboat.clients.exceptions.BadRequest;
-import com.github.harboat.clients.exceptions.ResourceNotFound;
 import com.github.harboat.clients.rooms.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.Document;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.testng.Assert.*;
@@ -25,6 +30,8 @@ public class RoomServiceTest {
     @Mock
     private RoomRepository repository;
     @Mock
+    private MongoOperations mongoOperations;
+    @Mock
     private CoreQueueProducer coreQueueProducer;
     @Mock
     private ConfigQueueProducer configQueueProducer;
@@ -36,7 +43,19 @@ public class RoomServiceTest {
 
     @BeforeMethod
     public void setUp() {
-        roomService = new RoomService(repository, coreQueueProducer, configQueueProducer, notificationProducer);
+        RoomCache cache = new RoomCache(repository, mongoOperations, false, 100, Duration.ofMinutes(1), 100);
+        CachedRoomStore store = new CachedRoomStore(cache, true);
+        OpenRooms openRooms = new OpenRooms();
+        roomService = new RoomService(
+                store,
+                new RoomOutbox(false, new ObjectMapper()),
+                new RoomEventDispatcher(coreQueueProducer, configQueueProducer),
+                openRooms,
+                notificationProducer,
+                new RoomLifecycle(mongoOperations, cache, openRooms, notificationProducer,
+                        Duration.ofMinutes(30), Duration.ofHours(24), 1000, 512),
+                new LobbyReadModel(store, Duration.ofMinutes(30), Duration.ofMinutes(1), Duration.ofMinutes(5), 100)
+        );
         roomId = "testRoom";
         playerId = "testPlayer";
     }
@@ -75,7 +94,45 @@ public class RoomServiceTest {
         assertEquals(actual, new ConfigurationCreate(roomId, playerId));
     }
 
-    @Test(expectedExceptions = ResourceNotFound.class, expectedExceptionsMessageRegExp = "Couldn't find the room!")
+    @Test(expectedExceptions = RoomRejection.class, expectedExceptionsMessageRegExp = "You are already in a room!")
+    public void createShouldThrowWhenPlayerIsAlreadyInAnOpenRoom() {
+        //given
+        List<Player> players = new ArrayList<>() {{
+            add(new Player(playerId, false, false));
+        }};
+        Room room = Room.builder()
+                .id(roomId)
+                .ownerId(playerId)
+                .players(players)
+                .started(false)
+                .build();
+        given(repository.findFirstByPlayersPlayerIdAndStartedFalse(playerId)).willReturn(Optional.of(room));
+        given(repository.findById(roomId)).willReturn(Optional.of(room));
+        //when
+        roomService.create(new RoomCreate(playerId));
+        //then
+    }
+
+    @Test
+    public void createShouldIgnoreExpiredLobbyOfPlayer() {
+        //given
+        Room stale = Room.builder()
+                .id(roomId)
+                .ownerId(playerId)
+                .players(new ArrayList<>(List.of(new Player(playerId, false, false))))
+                .started(false)
+                .lastActivityAt(Instant.now().minus(Duration.ofHours(1)))
+                .build();
+        given(repository.findFirstByPlayersPlayerIdAndStartedFalse(playerId)).willReturn(Optional.of(stale));
+        given(repository.findById(roomId)).willReturn(Optional.of(stale));
+        given(repository.save(any())).willAnswer(invocation -> invocation.getArgument(0));
+        //when
+        roomService.create(new RoomCreate(playerId));
+        //then
+        verify(repository).save(any(Room.class));
+    }
+
+    @Test(expectedExceptions = RoomRejection.class, expectedExceptionsMessageRegExp = "Couldn't find the room!")
     public void joinPlayerShouldThrowWhenThereIsNoRoomWithThisId() {
         //given
         RoomPlayerJoin roomPlayerJoin = new RoomPlayerJoin(roomId, playerId);
@@ -85,13 +142,13 @@ public class RoomServiceTest {
         //then
     }
 
-    @Test(expectedExceptions = BadRequest.class, expectedExceptionsMessageRegExp = "Room is full!")
+    @Test(expectedExceptions = RoomRejection.class, expectedExceptionsMessageRegExp = "Room is full!")
     public void joinPlayerShouldThrowWhenRoomIsFull() {
         //given
         String enemy = "testEnemy";
-        Map<String, Player> players = new HashMap<>() {{
-            put(playerId, new Player());
-            put(enemy, new Player());
+        List<Player> players = new ArrayList<>() {{
+            add(new Player(playerId, null, null));
+            add(new Player(enemy, null, null));
         }};
         Room room = Room.builder()
                 .id(roomId)
@@ -105,11 +162,11 @@ public class RoomServiceTest {
         //then
     }
 
-    @Test(expectedExceptions = BadRequest.class, expectedExceptionsMessageRegExp = "You are already in this room!")
+    @Test(expectedExceptions = RoomRejection.class, expectedExceptionsMessageRegExp = "You are already in this room!")
     public void joinPlayerShouldThrowWhenPlayerAlreadyInTheRoom() {
         //given
-        Map<String, Player> players = new HashMap<>() {{
-            put(playerId, new Player());
+        List<Player> players = new ArrayList<>() {{
+            add(new Player(playerId, null, null));
         }};
         Room room = Room.builder()
                 .id(roomId)
@@ -126,7 +183,7 @@ public class RoomServiceTest {
     @Test
     public void joinPlayerShouldSendWithProperConfigurationPlayerJoin() {
         //given
-        Map<String, Player> players = new HashMap<>();
+        List<Player> players = new ArrayList<>();
         Room room = Room.builder()
                 .id(roomId)
                 .ownerId(playerId)
@@ -146,7 +203,7 @@ public class RoomServiceTest {
     @Test
     public void joinPlayerShouldSendWithProperRoomPlayerJoined() {
         //given
-        Map<String, Player> players = new HashMap<>();
+        List<Player> players = new ArrayList<>();
         Room room = Room.builder()
                 .id(roomId)
                 .ownerId(playerId)
@@ -163,11 +220,11 @@ public class RoomServiceTest {
         assertEquals(actual, new RoomPlayerJoined(roomId, playerId));
     }
 
-    @Test(expectedExceptions = BadRequest.class, expectedExceptionsMessageRegExp = "You are not an owner of this game!")
+    @Test(expectedExceptions = RoomRejection.class, expectedExceptionsMessageRegExp = "You are not an owner of this game!")
     public void markStartShouldThrowIfPlayerIsNotTheOwner() {
         //given
-        Map<String, Player> players = new HashMap<>() {{
-            put(playerId, new Player());
+        List<Player> players = new ArrayList<>() {{
+            add(new Player(playerId, null, null));
         }};
         Room room = Room.builder()
                 .id(roomId)
@@ -181,11 +238,11 @@ public class RoomServiceTest {
         //then
     }
 
-    @Test(expectedExceptions = BadRequest.class, expectedExceptionsMessageRegExp = "You can't play solo!")
+    @Test(expectedExceptions = RoomRejection.class, expectedExceptionsMessageRegExp = "You can't play solo!")
     public void markStartShouldThrowIfThereIsOnlyOnePlayerInTheRoom() {
         //given
-        Map<String, Player> players = new HashMap<>() {{
-            put(playerId, new Player());
+        List<Player> players = new ArrayList<>() {{
+            add(new Player(playerId, null, null));
         }};
         Room room = Room.builder()
                 .id(roomId)
@@ -199,13 +256,13 @@ public class RoomServiceTest {
         //then
     }
 
-    @Test(expectedExceptions = BadRequest.class, expectedExceptionsMessageRegExp = "Not all players are ready!")
+    @Test(expectedExceptions = RoomRejection.class, expectedExceptionsMessageRegExp = "Not all players are ready!")
     public void markStartShouldThrowIfNotAllPlayersAreReady() {
         //given
         String enemy = "testEnemy";
-        Map<String, Player> players = new HashMap<>() {{
-            put(playerId, new Player(true, true));
-            put(enemy, new Player(false, false));
+        List<Player> players = new ArrayList<>() {{
+            add(new Player(playerId, true, true));
+            add(new Player(enemy, false, false));
         }};
         Room room = Room.builder()
                 .id(roomId)
@@ -219,13 +276,13 @@ public class RoomServiceTest {
         //then
     }
 
-    @Test(expectedExceptions = BadRequest.class, expectedExceptionsMessageRegExp = "Not all players have fleet set!")
+    @Test(expectedExceptions = RoomRejection.class, expectedExceptionsMessageRegExp = "Not all players have fleet set!")
     public void markStartShouldThrowIfNotAllFleetsAreSet() {
         //given
         String enemy = "testEnemy";
-        Map<String, Player> players = new HashMap<>() {{
-            put(playerId, new Player(true, true));
-            put(enemy, new Player(true, false));
+        List<Player> players = new ArrayList<>() {{
+            add(new Player(playerId, true, true));
+            add(new Player(enemy, true, false));
         }};
         Room room = Room.builder()
                 .id(roomId)
@@ -243,9 +300,9 @@ public class RoomServiceTest {
     public void markStartShouldSetRoomStarted() {
         //given
         String enemy = "testEnemy";
-        Map<String, Player> players = new HashMap<>() {{
-            put(playerId, new Player(true, true));
-            put(enemy, new Player(true, true));
+        List<Player> players = new ArrayList<>() {{
+            add(new Player(playerId, true, true));
+            add(new Player(enemy, true, true));
         }};
         Room room = Room.builder()
                 .id(roomId)
@@ -254,21 +311,21 @@ public class RoomServiceTest {
                 .build();
         given(repository.findById(roomId)).willReturn(Optional.of(room));
         MarkStart markStart = new MarkStart(roomId, playerId);
-        ArgumentCaptor<Room> captor = ArgumentCaptor.forClass(Room.class);
+        ArgumentCaptor<Update> captor = ArgumentCaptor.forClass(Update.class);
         //when
         roomService.markStart(markStart);
-        verify(repository).save(captor.capture());
-        var actual = captor.getValue();
+        verify(mongoOperations).upsert(any(Query.class), captor.capture(), eq(Room.class));
+        var actual = setOf(captor.getValue());
         //then
-        assertTrue(actual.getStarted());
+        assertTrue((Boolean) actual.get("started"));
     }
 
-    @Test(expectedExceptions = BadRequest.class, expectedExceptionsMessageRegExp = "Player fleet is not set yet, you can't change readiness!")
+    @Test(expectedExceptions = RoomRejection.class, expectedExceptionsMessageRegExp = "Player fleet is not set yet, you can't change readiness!")
     public void changeReadyShouldThrowWhenPlayersFleetIsNotSet() {
         //given
         ChangePlayerReadiness playerReadiness = new ChangePlayerReadiness(roomId, playerId);
-        Map<String, Player> players = new HashMap<>() {{
-            put(playerId, new Player(true, false));
+        List<Player> players = new ArrayList<>() {{
+            add(new Player(playerId, true, false));
         }};
         Room room = Room.builder()
                 .id(roomId)
@@ -285,8 +342,8 @@ public class RoomServiceTest {
     public void changeReadyShouldChangePlayersReadiness() {
         //given
         ChangePlayerReadiness playerReadiness = new ChangePlayerReadiness(roomId, playerId);
-        Map<String, Player> players = new HashMap<>() {{
-            put(playerId, new Player(false, true));
+        List<Player> players = new ArrayList<>() {{
+            add(new Player(playerId, false, true));
         }};
         Room room = Room.builder()
                 .id(roomId)
@@ -294,13 +351,18 @@ public class RoomServiceTest {
                 .players(players)
                 .build();
         given(repository.findById(roomId)).willReturn(Optional.of(room));
-        ArgumentCaptor<Room> captor = ArgumentCaptor.forClass(Room.class);
+        ArgumentCaptor<Update> captor = ArgumentCaptor.forClass(Update.class);
         //when
         roomService.changeReady(playerReadiness);
-        verify(repository).save(captor.capture());
-        var actual = captor.getValue();
+        verify(mongoOperations).upsert(any(Query.class), captor.capture(), eq(Room.class));
+        @SuppressWarnings("unchecked")
+        var actual = (List<Player>) setOf(captor.getValue()).get("players");
         //then
-        assertTrue(actual.getPlayers().get(playerId).getReady());
+        assertTrue(actual.get(0).getReady());
+    }
+
+    private Document setOf(Update update) {
+        return (Document) update.getUpdateObject().get("$set");
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.github.harboat.rooms;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class RoomTest {
+
+    private String ownerId;
+    private String enemyId;
+
+    @BeforeMethod
+    public void setUp() {
+        ownerId = "testOwner";
+        enemyId = "testEnemy";
+    }
+
+    @Test
+    public void areAllPlayersReadyShouldRequireEveryOccupiedSlot() {
+        //given
+        Room room = room(new Player(ownerId, true, true), new Player(enemyId, false, true));
+        //when
+        boolean before = room.areAllPlayersReady();
+        room.changePlayerReadiness(enemyId);
+        boolean after = room.areAllPlayersReady();
+        //then
+        assertFalse(before);
+        assertTrue(after);
+        assertTrue(room.areAllFleetsSet());
+    }
+
+    @Test
+    public void changePlayerReadinessShouldReturnPreviousStateAndKeepOtherSlot() {
+        //given
+        Room room = room(new Player(ownerId, true, true), new Player(enemyId, false, true));
+        //when
+        boolean previous = room.changePlayerReadiness(ownerId);
+        //then
+        assertTrue(previous);
+        assertFalse(room.isPlayerReady(ownerId));
+        assertFalse(room.isPlayerReady(enemyId));
+        assertTrue(room.isPlayerFleetSet(enemyId));
+    }
+
+    @Test
+    public void addPlayerShouldTakeFreeSlotWithClearedFlags() {
+        //given
+        Room room = room(new Player(ownerId, true, true));
+        //when
+        room.addPlayer(enemyId);
+        //then
+        assertEquals(room.playerCount(), 2);
+        assertTrue(room.isPlayerReady(ownerId));
+        assertFalse(room.isPlayerReady(enemyId));
+        assertFalse(room.isPlayerFleetSet(enemyId));
+        assertFalse(room.areAllFleetsSet());
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void addPlayerShouldThrowWhenBothSlotsAreTaken() {
+        //given
+        Room room = room(new Player(ownerId, false, false), new Player(enemyId, false, false));
+        //when
+        room.addPlayer("testPlayer");
+        //then
+    }
+
+    @Test
+    public void unmarkFleetSetsShouldClearAllFlags() {
+        //given
+        Room room = room(new Player(ownerId, true, true), new Player(enemyId, true, true));
+        //when
+        room.unmarkFleetSets();
+        //then
+        assertFalse(room.isPlayerFleetSet(ownerId));
+        assertFalse(room.isPlayerReady(enemyId));
+        assertEquals(room.playerIds(), List.of(ownerId, enemyId));
+    }
+
+    @Test
+    public void getPlayersShouldExposeSlotsInDocumentShape() {
+        //given
+        Room room = room(new Player(ownerId, true, false), new Player(enemyId, false, true));
+        //when
+        var actual = room.getPlayers();
+        //then
+        assertEquals(actual.size(), 2);
+        assertEquals(actual.get(0).getPlayerId(), ownerId);
+        assertEquals(actual.get(0).getReady(), Boolean.TRUE);
+        assertEquals(actual.get(0).getFleetSet(), Boolean.FALSE);
+        assertEquals(actual.get(1).getPlayerId(), enemyId);
+        assertEquals(actual.get(1).getReady(), Boolean.FALSE);
+        assertEquals(actual.get(1).getFleetSet(), Boolean.TRUE);
+    }
+
+    @Test
+    public void snapshotShouldNotShareFlagsWithOriginal() {
+        //given
+        Room room = room(new Player(ownerId, false, true));
+        Room snapshot = room.snapshot();
+        //when
+        room.changePlayerReadiness(ownerId);
+        //then
+        assertFalse(snapshot.isPlayerReady(ownerId));
+        assertTrue(snapshot.isPlayerFleetSet(ownerId));
+    }
+
+    private Room room(Player... players) {
+        return Room.builder()
+                .id("testRoom")
+                .ownerId(ownerId)
+                .players(List.of(players))
+                .started(false)
+                .build();
+    }
+}
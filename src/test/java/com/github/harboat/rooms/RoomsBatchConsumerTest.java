@@ -0,0 +1,96 @@
+package com.github.harboat.rooms;
+
+import com.github.harboat.clients.rooms.ChangePlayerReadiness;
+import com.github.harboat.clients.rooms.MarkStart;
+import com.rabbitmq.client.Channel;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.testng.MockitoTestNGListener;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Listeners;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.mockito.BDDMockito.*;
+
+@Listeners({MockitoTestNGListener.class})
+public class RoomsBatchConsumerTest {
+
+    @Mock
+    private RoomCommandHandler handler;
+    @Mock
+    private MessageConverter messageConverter;
+    @Mock
+    private Channel channel;
+    private RoomsBatchConsumer consumer;
+
+    @BeforeMethod
+    public void setUp() {
+        consumer = new RoomsBatchConsumer(handler, messageConverter, false);
+    }
+
+    @Test
+    public void consumeShouldHandleCommandsGroupedByRoom() throws Exception {
+        //given
+        Message first = message(1);
+        Message second = message(2);
+        Message third = message(3);
+        MarkStart firstRoomStart = new MarkStart("firstRoom", "testPlayer");
+        MarkStart secondRoomStart = new MarkStart("secondRoom", "testEnemy");
+        ChangePlayerReadiness firstRoomReadiness = new ChangePlayerReadiness("firstRoom", "testPlayer");
+        given(handler.resolve(any(), any(), anyBoolean())).willAnswer(invocation -> invocation.getArgument(0));
+        given(messageConverter.fromMessage(first)).willReturn(firstRoomStart);
+        given(messageConverter.fromMessage(second)).willReturn(secondRoomStart);
+        given(messageConverter.fromMessage(third)).willReturn(firstRoomReadiness);
+        //when
+        consumer.consume(List.of(first, second, third), channel);
+        //then
+        InOrder inOrder = inOrder(handler, channel);
+        inOrder.verify(handler).handle(firstRoomStart, null, false);
+        inOrder.verify(handler).handle(firstRoomReadiness, null, false);
+        inOrder.verify(handler).handle(secondRoomStart, null, false);
+        inOrder.verify(channel).basicAck(1, false);
+        inOrder.verify(channel).basicAck(3, false);
+        inOrder.verify(channel).basicAck(2, false);
+    }
+
+    @Test
+    public void consumeShouldRequeueOnlyFailedRoomAndEvictIt() throws Exception {
+        //given
+        Message first = message(1);
+        Message second = message(2);
+        Message third = message(3);
+        MarkStart firstRoomStart = new MarkStart("firstRoom", "testPlayer");
+        MarkStart secondRoomStart = new MarkStart("secondRoom", "testEnemy");
+        ChangePlayerReadiness firstRoomReadiness = new ChangePlayerReadiness("firstRoom", "testPlayer");
+        given(handler.resolve(any(), any(), anyBoolean())).willAnswer(invocation -> invocation.getArgument(0));
+        given(messageConverter.fromMessage(first)).willReturn(firstRoomStart);
+        given(messageConverter.fromMessage(second)).willReturn(secondRoomStart);
+        given(messageConverter.fromMessage(third)).willReturn(firstRoomReadiness);
+        willThrow(new IllegalStateException("Mongo is down")).given(handler).handle(firstRoomStart, null, false);
+        //when
+        consumer.consume(List.of(first, second, third), channel);
+        //then
+        verify(handler, never()).handle(firstRoomReadiness, null, false);
+        verify(channel).basicAck(2, false);
+        verify(channel).basicNack(1, false, true);
+        verify(channel).basicNack(3, false, true);
+        verifyNoMoreInteractions(channel);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void constructorShouldRejectPartitionedConsumption() {
+        //when
+        new RoomsBatchConsumer(handler, messageConverter, true);
+    }
+
+    private static Message message(long deliveryTag) {
+        MessageProperties properties = new MessageProperties();
+        properties.setDeliveryTag(deliveryTag);
+        return new Message(new byte[]{(byte) deliveryTag}, properties);
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.harboat.rooms;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+public class TimerWheelTest {
+
+    private TimerWheel<String, String> wheel;
+    private Map<String, String> expired;
+
+    @BeforeMethod
+    public void setUp() {
+        wheel = new TimerWheel<>(100, 8, 0);
+        expired = new HashMap<>();
+    }
+
+    @Test
+    public void advanceShouldExpireOnlyDueTimeouts() {
+        //given
+        wheel.schedule("firstRoom", "first", 250);
+        wheel.schedule("secondRoom", "second", 550);
+        //when
+        wheel.advance(300, expired::put);
+        //then
+        assertEquals(expired, Map.of("firstRoom", "first"));
+        assertEquals(wheel.size(), 1);
+    }
+
+    @Test
+    public void scheduleShouldReplacePreviousDeadline() {
+        //given
+        wheel.schedule("testRoom", "first", 200);
+        wheel.schedule("testRoom", "second", 1_000);
+        //when
+        wheel.advance(500, expired::put);
+        //then
+        assertTrue(expired.isEmpty());
+        assertEquals(wheel.size(), 1);
+    }
+
+    @Test
+    public void advanceShouldKeepTimeoutsOfLaterRounds() {
+        //given
+        wheel.schedule("testRoom", "room", 1_250);
+        //when
+        wheel.advance(500, expired::put);
+        wheel.advance(1_000, expired::put);
+        boolean beforeDeadline = expired.isEmpty();
+        wheel.advance(1_300, expired::put);
+        //then
+        assertTrue(beforeDeadline);
+        assertEquals(expired, Map.of("testRoom", "room"));
+    }
+
+    @Test
+    public void advanceShouldExpireEverythingAfterLongPause() {
+        //given
+        wheel.schedule("firstRoom", "first", 300);
+        wheel.schedule("secondRoom", "second", 2_000);
+        //when
+        wheel.advance(10_000, expired::put);
+        //then
+        assertEquals(expired.size(), 2);
+        assertEquals(wheel.size(), 0);
+    }
+
+    @Test
+    public void cancelShouldPreventExpiry() {
+        //given
+        wheel.schedule("testRoom", "room", 200);
+        //when
+        wheel.cancel("testRoom");
+        wheel.advance(500, expired::put);
+        //then
+        assertTrue(expired.isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+package com.github.harboat.rooms;
+
+import com.github.harboat.clients.rooms.MarkStart;
+import com.github.harboat.clients.rooms.RoomCreated;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.AbstractJavaTypeMapper;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Set;
+
+import static org.testng.Assert.*;
+
+public class WireFormatTest {
+
+    private WireFormat wireFormat;
+
+    @BeforeMethod
+    public void setUp() {
+        wireFormat = new WireFormat(Set.of("binaryExchange"));
+    }
+
+    @Test
+    public void encodeShouldLeavePayloadForJsonExchanges() {
+        //given
+        RoomCreated roomCreated = new RoomCreated("testRoom", "testOwner");
+        //when
+        var actual = wireFormat.encode(roomCreated, "jsonExchange");
+        //then
+        assertSame(actual, roomCreated);
+    }
+
+    @Test
+    public void encodeShouldWriteSmileForBinaryExchanges() {
+        //given
+        RoomCreated roomCreated = new RoomCreated("testRoom", "testOwner");
+        //when
+        var actual = (Message) wireFormat.encode(roomCreated, "binaryExchange");
+        //then
+        assertEquals(actual.getMessageProperties().getContentType(), SmileMessageConverter.CONTENT_TYPE);
+        assertEquals(wireFormat.converter().fromMessage(actual), roomCreated);
+    }
+
+    @Test
+    public void converterShouldStillReadJsonMessages() {
+        //given
+        MarkStart markStart = new MarkStart("testRoom", "testPlayer");
+        Message message = new Jackson2JsonMessageConverter().toMessage(markStart, new MessageProperties());
+        //when
+        var actual = wireFormat.converter().fromMessage(message);
+        //then
+        assertEquals(actual, markStart);
+    }
+
+    @Test
+    public void converterShouldRejectUnregisteredSmileTypes() {
+        //given
+        Message message = (Message) wireFormat.encode(new RoomCreated("testRoom", "testOwner"), "binaryExchange");
+        message.getMessageProperties().setHeader(AbstractJavaTypeMapper.DEFAULT_CLASSID_FIELD_NAME, "java.lang.Runtime");
+        //when
+        //then
+        expectThrows(MessageConversionException.class, () -> wireFormat.converter().fromMessage(message));
+    }
+}